@@ -0,0 +1,40 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.io.Serializable;
+
+import utils.Constants;
+
+/**
+ * The data of a problem instance that all the tasks of a job share, such as the cities of a TSP.
+ * The client puts it in the Space once per job, and the Space sends it to every computer once; the tasks only refer to it by the id of the job.
+ * Every JVM keeps the problems that it has received in the {@link ProblemRegistry}.
+ */
+public abstract class Problem implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The id of the job, assigned by the Space; it is {@link Constants#NO_JOB_ID} until the problem has been put in the Space. */
+	private long jobId = Constants.NO_JOB_ID;
+
+	/**
+	 * Gets the id of the job.
+	 *
+	 * @return the job id
+	 */
+	public long getJobId() {
+		return jobId;
+	}
+
+	/**
+	 * Sets the id of the job.
+	 *
+	 * @param jobId the new job id
+	 */
+	public void setJobId(long jobId) {
+		this.jobId = jobId;
+	}
+}
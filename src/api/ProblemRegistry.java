@@ -0,0 +1,67 @@
+/*
+ * @author gautham
+ */
+package api;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import utils.Constants;
+
+/**
+ * Keeps the problems of the recent jobs in this JVM, by job id, so that a task that arrives can find the data of its job.
+ */
+public class ProblemRegistry {
+
+	/** The problems, least recently registered first. */
+	private static final Map<Long, Problem> problems = new LinkedHashMap<Long, Problem>(){
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/* (non-Javadoc)
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Problem> eldest){
+			return size() > Constants.PROBLEM_CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Instantiates a new problem registry.
+	 */
+	private ProblemRegistry(){
+
+	}
+
+	/**
+	 * Registers the problem of a job, forgetting the oldest job if there are too many.
+	 *
+	 * @param problem the problem; its job id must have been set
+	 */
+	public static synchronized void register(Problem problem){
+		problems.put(problem.getJobId(), problem);
+	}
+
+	/**
+	 * Gets the problem of a job.
+	 *
+	 * @param jobId the job id
+	 * @return the problem, or null if it has not been registered
+	 */
+	public static synchronized Problem get(long jobId){
+		return problems.get(jobId);
+	}
+
+	/**
+	 * Gets all the registered problems, least recently registered first.
+	 *
+	 * @return the problems
+	 */
+	public static synchronized List<Problem> getAll(){
+		return new ArrayList<Problem>(problems.values());
+	}
+}
@@ -26,6 +26,25 @@ public interface Space extends Remote {
 	 */
 	<T> void put( Task<T> task ) throws RemoteException;
 	
+	/**
+	 * A remote method used by the Clients to put the problem of a job into the ComputeSpace, before its tasks.
+	 * The Space sends the problem to every computer once, so that the tasks only need to refer to it by the job id.
+	 *
+	 * @param problem the problem
+	 * @return the id that the Space assigned to the job
+	 * @throws RemoteException the remote exception
+	 */
+	long putProblem(Problem problem) throws RemoteException;
+	
+	/**
+	 * A remote method used by the Clients to get a node id, before they create the tasks of a job.
+	 * The node ids are handed out from the same numbers as the computer ids, so the ids of the tasks that a client creates differ from those of the other clients and of the computers.
+	 *
+	 * @return the node id
+	 * @throws RemoteException the remote exception
+	 */
+	int createNodeId() throws RemoteException;
+	
 	
 	/**
 	 * A remote method to take the Result that has been computed by the ComputeServers. This method blocks until a Result is available to return to the client
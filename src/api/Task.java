@@ -4,17 +4,24 @@
 
 package api;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.rmi.RemoteException;
 import java.util.List;
 
+import shared.Incumbent;
 import shared.Shared;
 import system.Computer;
+import utils.Constants;
+import utils.Varint;
 
 /**
  * An abstract class that acts as a link between the Computer implementation and the work that it needs to do, providing the way to start the work.
  * The client decomposes the original problem into a set of Task objects and they therefore represent the unit of work that is to be done by the Computers.  
  * This class defines both the child tasks and the successor tasks.
+ * The fields are written by hand, in a compact binary form, rather than by the default serialization; the computer that executes the task is not sent along with it.
  * @param <T> a type parameter, T, which represents the result type of the task's computation.
  */
 public abstract class Task<T> implements Serializable{
@@ -23,37 +30,43 @@ public abstract class Task<T> implements Serializable{
 	private static final long serialVersionUID = 1L;
 
 	/** The task id. */
-	protected Object taskId;
+	protected transient long taskId;
 	
 	/** The argument number for the successor task. */
-	protected int argNo;
+	protected transient int argNo;
 	
 	/** The task type that differentiates between a child task and a successor task. */
-	protected int taskType;
+	protected transient int taskType;
 	
 	/** The join counter that denotes the number of arguments that the successor task accepts. */
-	protected int joinCounter;
+	protected transient int joinCounter;
 	
-	/** The successor task id. */
-	protected Object successorTaskId;
+	/** The successor task id, or {@link Constants#NO_TASK_ID} if the task has no successor. */
+	protected transient long successorTaskId;
 	
 	/** The input list that the successor is waiting for. */
-	protected Task[] inputList;
+	protected transient Task[] inputList;
 	
 	/** The result of execution of the task. */
-	protected Result<T> result;
+	protected transient Result<T> result;
 	
 	/** The time taken to run the task on the computer. */
-	protected long elapsedTime;		
+	protected transient long elapsedTime;		
 	
 	/** The computer. */
-	private Computer computer;
+	private transient Computer computer;
+	
+	/** The incumbent of the computer that executes the task; it is not sent along with the task. */
+	private transient Incumbent incumbent;
 	
 	/** The init upper bound. */
-	private Shared initUpperBound;
+	private transient Shared initUpperBound;
 	
 	/** The level. */
-	protected int level;
+	protected transient int level;
+	
+	/** Whether the Space decided that the task is executed as a whole rather than split; it is null if the task decides by itself. */
+	protected transient Boolean atomic;
 		
 
 	/**
@@ -61,7 +74,7 @@ public abstract class Task<T> implements Serializable{
 	 *
 	 * @param taskId the task id
 	 */
-	public Task(Object taskId){
+	public Task(long taskId){
 		this.taskId = taskId;
 	}
 	
@@ -71,7 +84,7 @@ public abstract class Task<T> implements Serializable{
 	 * @param taskId the task id
 	 * @param taskType the task type
 	 */
-	public Task(Object taskId, int taskType){
+	public Task(long taskId, int taskType){
 		this.taskId = taskId;
 		this.taskType = taskType;
 	}
@@ -83,7 +96,7 @@ public abstract class Task<T> implements Serializable{
 	 * @param taskType the task type
 	 * @param level the level
 	 */
-	public Task(Object taskId, int taskType, int level){
+	public Task(long taskId, int taskType, int level){
 		this.taskId = taskId;
 		this.taskType = taskType;
 		this.level = level;
@@ -131,7 +144,7 @@ public abstract class Task<T> implements Serializable{
 	 *
 	 * @return the successor task id
 	 */
-	public Object getSuccessorTaskId() {
+	public long getSuccessorTaskId() {
 		return successorTaskId;
 	}
 
@@ -140,7 +153,7 @@ public abstract class Task<T> implements Serializable{
 	 *
 	 * @param successorTaskId the new successor task id
 	 */
-	public void setSuccessorTaskId(Object successorTaskId) {
+	public void setSuccessorTaskId(long successorTaskId) {
 		this.successorTaskId = successorTaskId;
 	}
 
@@ -167,7 +180,7 @@ public abstract class Task<T> implements Serializable{
 	 *
 	 * @return the task id
 	 */
-	public Object getTaskId() {
+	public long getTaskId() {
 		return taskId;
 	}
 
@@ -176,7 +189,7 @@ public abstract class Task<T> implements Serializable{
 	 *
 	 * @param taskId the new task id
 	 */
-	public void setTaskId(Object taskId) {
+	public void setTaskId(long taskId) {
 		this.taskId = taskId;
 	}
 
@@ -265,6 +278,16 @@ public abstract class Task<T> implements Serializable{
 	 */
 	public abstract Result<T> execute();
 	
+	/**
+	 * Gets the tasks for the parts of the work that the task left unfinished when it was executed, e.g. because it ran out of budget.
+	 * The computer stores them in Space along with a successor task, as if the task had been split.
+	 *
+	 * @return the tasks, or null if the task finished all its work
+	 */
+	public List<Task<T>> getUnfinishedTasks() {
+		return null;
+	}
+	
 	/**
 	 * Checks if the base condition is met to decide whether or not to decompose the task.
 	 *
@@ -310,6 +333,25 @@ public abstract class Task<T> implements Serializable{
 		computer.setShared(shared, true);
 	}	 
 	
+	/**
+	 * Sets the incumbent of the computer that executes the task.
+	 *
+	 * @param incumbent the new incumbent
+	 */
+	public void setIncumbent(Incumbent incumbent) {
+		this.incumbent = incumbent;
+	}
+	
+	/**
+	 * Gets the incumbent of the computer that executes the task.
+	 * Reading it is much cheaper than reading the shared object, but it is only available once the task has been handed to a computer that keeps one.
+	 *
+	 * @return the incumbent, or null if the computer does not keep one
+	 */
+	public Incumbent getIncumbent() {
+		return incumbent;
+	}
+	
 	/**
 	 * Sets the computer.
 	 *
@@ -319,6 +361,33 @@ public abstract class Task<T> implements Serializable{
 		this.computer = computer;
 	}
 
+	/**
+	 * Gets the size of the problem that the task represents, which the Space uses to estimate how long the task runs.
+	 *
+	 * @return the size, or -1 if the task does not know it
+	 */
+	public int getSize() {
+		return -1;
+	}
+	
+	/**
+	 * Gets the lower bound on the cost of the solutions that the task can find, by which a best-first ready queue orders the tasks.
+	 *
+	 * @return the lower bound, or negative infinity if the task has none, so that it is taken before the tasks that search
+	 */
+	public double getLowerBound() {
+		return Double.NEGATIVE_INFINITY;
+	}
+	
+	/**
+	 * Lets the Space decide whether the task is executed as a whole rather than split, overriding the base condition of the task.
+	 *
+	 * @param atomic true if the task must be executed as a whole, false if it must be split, or null to let the task decide
+	 */
+	public void setAtomic(Boolean atomic) {
+		this.atomic = atomic;
+	}
+
 	/**
 	 * Sets the level.
 	 *
@@ -337,4 +406,68 @@ public abstract class Task<T> implements Serializable{
 		return level;
 	}
 
+	/**
+	 * Writes the fields of the task.
+	 *
+	 * @param out the output stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeLong(taskId);
+		out.writeLong(successorTaskId);
+		out.writeByte(taskType);
+		// atomic is null, false or true
+		out.writeByte(atomic == null ? 0 : atomic ? 2 : 1);
+		Varint.write(out, argNo);
+		Varint.write(out, joinCounter);
+		Varint.write(out, level);
+		Varint.write(out, elapsedTime);
+		// The length is written plus one, so that 0 stands for null
+		Varint.write(out, inputList == null ? 0 : inputList.length + 1);
+		if(inputList != null){
+			for(Task input : inputList){
+				out.writeObject(input);
+			}
+		}
+		// The result is written without its wrapper
+		out.writeBoolean(result != null);
+		if(result != null){
+			out.writeObject(result.getTaskReturnValue());
+		}
+		out.writeObject(initUpperBound);
+	}
+
+	/**
+	 * Reads the fields of the task.
+	 *
+	 * @param in the input stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException the class not found exception
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		taskId = in.readLong();
+		successorTaskId = in.readLong();
+		taskType = in.readByte();
+		byte atomicCode = in.readByte();
+		atomic = atomicCode == 0 ? null : Boolean.valueOf(atomicCode == 2);
+		argNo = Varint.readInt(in);
+		joinCounter = Varint.readInt(in);
+		level = Varint.readInt(in);
+		elapsedTime = Varint.readLong(in);
+		int inputCount = Varint.readInt(in) - 1;
+		if(inputCount >= 0){
+			inputList = new Task[inputCount];
+			for(int i = 0; i < inputCount; i++){
+				inputList[i] = (Task) in.readObject();
+			}
+		}
+		if(in.readBoolean()){
+			result = new Result<T>();
+			result.setTaskReturnValue((T) in.readObject());
+		}
+		initUpperBound = (Shared) in.readObject();
+	}
 }
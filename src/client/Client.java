@@ -11,6 +11,8 @@ import java.rmi.RemoteException;
 
 import jobs.EuclideanTspJob;
 import jobs.Job;
+import system.LocalEngine;
+import utils.Constants;
 import api.Space;
 
 /**
@@ -18,31 +20,53 @@ import api.Space;
  * The client retrieves results from the Space that are computed for each Task by the Compute Servers, composing them into a solution to the original problem.
  * The RMI client requests a reference to a named remote object of the Compute Space. The reference (the remote object's stub instance) is what the client will use to make remote method calls to the remote object.
  * The client also encompasses the functionality of visualizing the results of the different tasks that are executed on a remote machine.
+ * With {@link #LOCAL_HOST} as the host name, the client runs the Space and its computers in its own JVM instead, through the {@link LocalEngine}.
  */
 public class Client {
 	
+	/** The host name that makes the client run the job in its own JVM. */
+	public static final String LOCAL_HOST = "local";
+	
 	/** The remote server url. */
 	private static String spaceURL;
 	
 	/** The space. */
 	private static Space space;
 	
+	/** The strategy used by the atomic tasks of the TSP job to explore their sub-trees. */
+	private static int searchMode = Constants.STACK_SEARCH;
+	
+	/** The kind of lower bound computed by the TSP job. */
+	private static int boundType = Constants.PATH_BOUND;
+	
 	/**
 	 * The main method.
 	 *
-	 * @param args the arguments
-	 * @throws MalformedURLException the malformed url exception
-	 * @throws RemoteException the remote exception
-	 * @throws NotBoundException the not bound exception
+	 * @param args the arguments: the host name of the Space, or {@link #LOCAL_HOST}; the operation; optionally the search mode of the TSP job, "stack" unless given; optionally its lower bound, "path" unless given; and with {@link #LOCAL_HOST}, optionally the number of workers of every computer and the number of computers
+	 * @throws Exception the exception
 	 */
-	public static void main(String[] args) throws MalformedURLException, RemoteException, NotBoundException, IllegalArgumentException{
-		// Construct & set a security manager to allow downloading of classes from a remote codebase
-		System.setSecurityManager(new RMISecurityManager());
+	public static void main(String[] args) throws Exception{
 		String serverDomainName = args[0];
-		spaceURL = "//" + serverDomainName + "/" + Space.SERVICE_NAME;
-		
-		// The RMI client requests a reference to a named remote object. The reference (the remote object's stub instance) is what the client will use to make remote method calls to the remote object.
-		space = (Space) Naming.lookup(spaceURL);
+		// The search mode and the lower bound are given as in EuclideanTspJob#parseSearchMode and EuclideanTspJob#parseBoundType
+		if(args.length > 2){
+			searchMode = EuclideanTspJob.parseSearchMode(args[2]);
+		}
+		if(args.length > 3){
+			boundType = EuclideanTspJob.parseBoundType(args[3]);
+		}
+		if(LOCAL_HOST.equals(serverDomainName)){
+			int workerCount = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+			int computerCount = args.length > 5 ? Integer.parseInt(args[5]) : 1;
+			space = LocalEngine.start(computerCount, workerCount, Constants.TARGET_TASK_RUN_TIME);
+		}
+		else{
+			// Construct & set a security manager to allow downloading of classes from a remote codebase
+			System.setSecurityManager(new RMISecurityManager());
+			spaceURL = "//" + serverDomainName + "/" + Space.SERVICE_NAME;
+			
+			// The RMI client requests a reference to a named remote object. The reference (the remote object's stub instance) is what the client will use to make remote method calls to the remote object.
+			space = (Space) Naming.lookup(spaceURL);
+		}
 		
 		doExperiment(Integer.parseInt(args[1]));
 		
@@ -59,7 +83,7 @@ public class Client {
 //				double[][] cities = { { 1, 1 }, { 8, 1 }, { 8, 8 }, { 1, 8 }, { 2, 2 },
 //						{ 7, 2 }, { 7, 7 }, { 2, 7 }, { 3, 3 }, { 6, 3 }, {6, 6}, {3, 6} };
 				// tspJob is an instance of the EuclideanTsp Job.
-				Job<int[]> tspJob = new EuclideanTspJob(cities);		
+				Job<int[]> tspJob = new EuclideanTspJob(cities, searchMode, boundType);		
 				int[] tour = (int[]) runTask(tspJob);
 				Visualizer.visualizeEuclideanTspTask(tour, cities, 512);
 				break;
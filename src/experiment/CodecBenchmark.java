@@ -0,0 +1,98 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import solution.EuclideanTSPSolution;
+import solution.Solution;
+import solution.TspInstance;
+import tasks.BranchAndBound;
+import utils.Constants;
+import api.Task;
+
+/**
+ * Measures the size of the tasks that the Space sends to the computers, and the time that it takes to write and read them.
+ * The tasks are the level-2 tasks of a random instance, sent as one batch and as single tasks, with every kind of lower bound.
+ */
+public class CodecBenchmark {
+
+	/** The number of cities of the instance. */
+	private static final int CITY_COUNT = 40;
+
+	/** The number of tasks in a batch, as the Space sends them. */
+	private static final int BATCH_SIZE = Constants.MAX_BATCH_SIZE;
+
+	/** The number of times that a batch is written and read before the measurement, so that the code is compiled. */
+	private static final int WARMUP_ROUNDS = 10000;
+
+	/** The number of times that a batch is written and read during the measurement. */
+	private static final int MEASURED_ROUNDS = 2000;
+
+	/**
+	 * Instantiates a new codec benchmark.
+	 */
+	private CodecBenchmark(){
+
+	}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the arguments
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		TspInstance instance = CodecCheck.createInstance(CITY_COUNT);
+		String[] boundNames = {"path", "spanning tree", "Held-Karp"};
+		int[] boundTypes = {Constants.PATH_BOUND, Constants.SPANNING_TREE_BOUND, Constants.HELD_KARP_BOUND};
+		for(int i = 0; i < boundTypes.length; i++){
+			ArrayList<Task<?>> batch = createBatch(instance, boundTypes[i]);
+			int batchSize = CodecCheck.write(batch).length;
+			int singleSize = CodecCheck.write(batch.get(0)).length;
+			for(int round = 0; round < WARMUP_ROUNDS; round++){
+				CodecCheck.read(CodecCheck.write(batch));
+			}
+			long writeTime = 0;
+			long readTime = 0;
+			for(int round = 0; round < MEASURED_ROUNDS; round++){
+				long start = System.nanoTime();
+				byte[] bytes = CodecCheck.write(batch);
+				long written = System.nanoTime();
+				CodecCheck.read(bytes);
+				writeTime += written - start;
+				readTime += System.nanoTime() - written;
+			}
+			double tasks = (double) MEASURED_ROUNDS * batch.size();
+			System.out.println(String.format("%s bound: batch of %d tasks %d bytes (%d bytes/task), single task %d bytes, write %.2f us/task, read %.2f us/task",
+					boundNames[i], batch.size(), batchSize, batchSize / batch.size(), singleSize, writeTime / 1e3 / tasks, readTime / 1e3 / tasks));
+		}
+	}
+
+	/**
+	 * Creates a batch of the level-2 tasks of an instance.
+	 *
+	 * @param instance the instance
+	 * @param boundType the kind of lower bound
+	 * @return the batch
+	 */
+	static ArrayList<Task<?>> createBatch(TspInstance instance, int boundType){
+		EuclideanTSPSolution root = CodecCheck.createRoot(instance, boundType);
+		ArrayList<Task<?>> batch = new ArrayList<Task<?>>();
+		for(Solution<Double> child : root.getChildren(null)){
+			List<Solution<Double>> grandchildren = new ArrayList<Solution<Double>>(child.getChildren(null));
+			for(Solution<Double> grandchild : grandchildren){
+				if(batch.size() == BATCH_SIZE){
+					return batch;
+				}
+				BranchAndBound task = new BranchAndBound(grandchild, 2);
+				task.setSearchMode(Constants.IN_PLACE_SEARCH);
+				task.setSuccessorTaskId(child.hashCode());
+				batch.add(task);
+			}
+		}
+		return batch;
+	}
+}
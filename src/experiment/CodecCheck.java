@@ -0,0 +1,369 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+
+import shared.DoubleShared;
+import shared.Shared;
+import solution.EuclideanTSPSolution;
+import solution.Solution;
+import solution.TspInstance;
+import tasks.BranchAndBound;
+import utils.Constants;
+import utils.Varint;
+import api.ProblemRegistry;
+import api.Result;
+import api.Task;
+
+/**
+ * Round-trips the compact binary form of the tasks, the solutions, the shared objects and the varints, and checks that nothing is lost.
+ * Every object is written, read back and checked field by field where the fields can be read; it is then written again, and the bytes must be the same as the first time, which covers the fields that cannot be read from outside.
+ * It exits with status 1 if any check fails.
+ */
+public class CodecCheck {
+
+	/** The job id that the TSP instance of the checks is registered under. */
+	private static final long JOB_ID = 1000;
+
+	/** The number of checks that failed. */
+	private static int failures;
+
+	/** The number of checks that were made. */
+	private static int checks;
+
+	/**
+	 * Instantiates a new codec check.
+	 */
+	private CodecCheck(){
+
+	}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the arguments
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		checkVarints();
+		checkShared();
+		TspInstance instance = createInstance(12);
+		checkSolutions(instance);
+		checkTasks(instance);
+		System.out.println(checks + " checks, " + failures + " failed.");
+		System.exit(failures == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Checks the varints, including the boundaries between lengths, the largest and the negative values, null arrays and malformed input.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void checkVarints() throws IOException {
+		long[] values = {0, 1, 127, 128, 16383, 16384, 2097151, 2097152, Integer.MAX_VALUE, 1L << 40, Long.MAX_VALUE, -1, Integer.MIN_VALUE, Long.MIN_VALUE};
+		for(long value : values){
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			Varint.write(new DataOutputStream(bytes), value);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+			check(Varint.readLong(in) == value, "varint " + value);
+			check(in.available() == 0, "varint " + value + " is read to its end");
+		}
+		check(getVarintLength(127) == 1 && getVarintLength(128) == 2 && getVarintLength(16384) == 3 && getVarintLength(-1) == 10, "varint lengths");
+		int[] intValues = {0, 1, 300, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+		for(int value : intValues){
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			Varint.write(new DataOutputStream(bytes), value);
+			check(Varint.readInt(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) == value, "int varint " + value);
+		}
+		int[][] arrays = {null, {}, {0}, {0, 127, 128, 300, Integer.MAX_VALUE}};
+		for(int[] array : arrays){
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			Varint.writeArray(new DataOutputStream(bytes), array);
+			int[] read = Varint.readArray(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+			check(Arrays.equals(read, array) && (read == null) == (array == null), "varint array " + Arrays.toString(array));
+		}
+		byte[] malformed = new byte[11];
+		Arrays.fill(malformed, (byte) 0x80);
+		try {
+			Varint.readLong(new DataInputStream(new ByteArrayInputStream(malformed)));
+			check(false, "a varint of more than ten bytes is rejected");
+		} catch (IOException e) {
+			check(true, "a varint of more than ten bytes is rejected");
+		}
+	}
+
+	/**
+	 * Gets the number of bytes that a value takes as a varint.
+	 *
+	 * @param value the value
+	 * @return the number of bytes
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static int getVarintLength(long value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Varint.write(new DataOutputStream(bytes), value);
+		return bytes.size();
+	}
+
+	/**
+	 * Checks the shared objects.
+	 *
+	 * @throws Exception the exception
+	 */
+	@SuppressWarnings("unchecked")
+	private static void checkShared() throws Exception {
+		double[] values = {0, 34.25, Double.MAX_VALUE, Double.POSITIVE_INFINITY};
+		for(double value : values){
+			Shared<Double> shared = (Shared<Double>) roundTrip(new DoubleShared(value), "shared " + value);
+			check(shared.get() == value, "shared " + value);
+		}
+	}
+
+	/**
+	 * Checks the solutions: with the instance referred to by job id and written inline, with and without Held-Karp penalties, and complete.
+	 *
+	 * @param instance the TSP instance, registered under {@link #JOB_ID}
+	 * @throws Exception the exception
+	 */
+	private static void checkSolutions(TspInstance instance) throws Exception {
+		for(int boundType : new int[]{Constants.PATH_BOUND, Constants.SPANNING_TREE_BOUND, Constants.HELD_KARP_BOUND}){
+			EuclideanTSPSolution root = createRoot(instance, boundType);
+			// The children have their lower bounds computed, and under Held-Karp the penalties of their parent
+			for(Solution<Double> child : root.getChildren(null)){
+				checkSolution(child, "solution with bound type " + boundType);
+			}
+		}
+		// A solution whose instance has not been put in the Space carries the instance along
+		TspInstance unregistered = new TspInstance(instance.getCities());
+		EuclideanTSPSolution inline = createRoot(unregistered, Constants.PATH_BOUND);
+		checkSolution(inline.getChildren(null).remove(), "solution with its instance inline");
+		// A complete tour has no remaining cities
+		Solution<Double> node = createRoot(instance, Constants.PATH_BOUND);
+		while(!node.isComplete()){
+			node = node.getChildren(null).remove();
+		}
+		checkSolution(node, "complete solution");
+		// A solution that refers to a job whose instance is unknown cannot be read
+		TspInstance forgotten = new TspInstance(instance.getCities());
+		forgotten.setJobId(JOB_ID + 1);
+		byte[] bytes = write(createRoot(forgotten, Constants.PATH_BOUND));
+		try {
+			read(bytes);
+			check(false, "a solution of an unknown job is rejected");
+		} catch (InvalidObjectException e) {
+			check(true, "a solution of an unknown job is rejected");
+		}
+	}
+
+	/**
+	 * Checks a solution, and the children generated from it.
+	 *
+	 * @param solution the solution
+	 * @param name the name of the check
+	 * @throws Exception the exception
+	 */
+	private static void checkSolution(Solution<?> solution, String name) throws Exception {
+		Solution<?> read = (Solution<?>) roundTrip(solution, name);
+		check(read.getLowerBound().equals(solution.getLowerBound()), name + ": lower bound");
+		check(Arrays.equals(read.getPathFromRoot(), solution.getPathFromRoot()), name + ": path");
+		check(read.getSize() == solution.getSize(), name + ": size");
+		check(read.isComplete() == solution.isComplete(), name + ": complete");
+		// The decoded solution must produce the same children, which needs the instance, the remaining cities, the path cost and the penalties
+		check(describe(read.getChildren(null)).equals(describe(solution.getChildren(null))), name + ": children");
+	}
+
+	/**
+	 * Describes a list of solutions by their paths and lower bounds.
+	 *
+	 * @param solutions the solutions
+	 * @return the description
+	 */
+	private static String describe(Queue<?> solutions){
+		StringBuilder sb = new StringBuilder();
+		for(Object solution : solutions){
+			sb.append(Arrays.toString(((Solution<?>) solution).getPathFromRoot())).append(' ').append(((Solution<?>) solution).getLowerBound()).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Checks the tasks: child tasks with every value of the atomic flag, with and without a result, budgets and an initial upper bound, and successor tasks with a null, empty and partly filled input list.
+	 *
+	 * @param instance the TSP instance, registered under {@link #JOB_ID}
+	 * @throws Exception the exception
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void checkTasks(TspInstance instance) throws Exception {
+		EuclideanTSPSolution root = createRoot(instance, Constants.HELD_KARP_BOUND);
+		List<Solution<Double>> children = new ArrayList<Solution<Double>>(root.getChildren(null));
+		Boolean[] atomicValues = {null, Boolean.FALSE, Boolean.TRUE};
+		for(int level = Constants.BB_BASE_LEVEL - 1; level <= Constants.BB_BASE_LEVEL; level++){
+			for(Boolean atomic : atomicValues){
+				String name = "child task at level " + level + ", atomic " + atomic;
+				BranchAndBound task = new BranchAndBound(children.get(0), level);
+				task.setAtomic(atomic);
+				task.setSearchMode(Constants.IN_PLACE_SEARCH);
+				task.setNodeBudget(1000);
+				task.setTimeBudget(20);
+				task.setArgNo(3);
+				task.setSuccessorTaskId(Long.MAX_VALUE);
+				task.setInitUpperBound(new DoubleShared(123.5));
+				BranchAndBound read = (BranchAndBound) roundTrip(task, name);
+				checkTaskFields(read, task, name);
+				check(read.isAtomic() == task.isAtomic(), name + ": atomic");
+				check(read.getSearchMode() == task.getSearchMode(), name + ": search mode");
+				check(read.getSize() == task.getSize() && read.getLowerBound() == task.getLowerBound(), name + ": solution");
+				check((Double) read.getInitUpperBound().get() == 123.5, name + ": initial upper bound");
+			}
+		}
+		// A task that has been executed carries its result, and a task without one does not
+		BranchAndBound executed = new BranchAndBound(children.get(1), Constants.BB_BASE_LEVEL);
+		Result result = new Result();
+		result.setTaskReturnValue(children.get(1));
+		executed.setResult(result);
+		executed.setTaskRunTime(987654321);
+		BranchAndBound read = (BranchAndBound) roundTrip(executed, "task with a result");
+		checkTaskFields(read, executed, "task with a result");
+		check(read.getResult() != null && Arrays.equals(((Solution<?>) read.getResult().getTaskReturnValue()).getPathFromRoot(), children.get(1).getPathFromRoot()), "task with a result: result");
+		check(((BranchAndBound) roundTrip(new BranchAndBound(children.get(1), 1), "task without a result")).getResult() == null, "task without a result: result");
+		Result empty = new Result();
+		executed.setResult(empty);
+		read = (BranchAndBound) roundTrip(executed, "task with an empty result");
+		check(read.getResult() != null && read.getResult().getTaskReturnValue() == null, "task with an empty result: result");
+		// Successor tasks
+		BranchAndBound successor = new BranchAndBound(Constants.SUCCESSOR_TASK);
+		successor.setJoinCounter(3);
+		read = (BranchAndBound) roundTrip(successor, "successor with no input list");
+		checkTaskFields(read, successor, "successor with no input list");
+		check(read.getInputList() == null, "successor with no input list: input list");
+		successor.setInputList(new Task[0]);
+		read = (BranchAndBound) roundTrip(successor, "successor with an empty input list");
+		check(read.getInputList() != null && read.getInputList().length == 0, "successor with an empty input list: input list");
+		successor.setInputList(new Task[]{executed, null, new BranchAndBound(children.get(2), 1)});
+		read = (BranchAndBound) roundTrip(successor, "successor with a partly filled input list");
+		check(read.getInputList().length == 3 && read.getInputList()[0].getTaskId() == executed.getTaskId() && read.getInputList()[1] == null, "successor with a partly filled input list: input list");
+	}
+
+	/**
+	 * Checks the fields that every task has.
+	 *
+	 * @param read the task that was read
+	 * @param task the task that was written
+	 * @param name the name of the check
+	 */
+	private static void checkTaskFields(Task<?> read, Task<?> task, String name){
+		check(read.getTaskId() == task.getTaskId(), name + ": task id");
+		check(read.getSuccessorTaskId() == task.getSuccessorTaskId(), name + ": successor task id");
+		check(read.getTaskType() == task.getTaskType(), name + ": task type");
+		check(read.getArgNo() == task.getArgNo(), name + ": argument number");
+		check(read.getJoinCounter() == task.getJoinCounter(), name + ": join counter");
+		check(read.getLevel() == task.getLevel(), name + ": level");
+		check(read.getTaskRunTime() == task.getTaskRunTime(), name + ": run time");
+	}
+
+	/**
+	 * Creates a random TSP instance and registers it under {@link #JOB_ID}.
+	 *
+	 * @param cityCount the number of cities
+	 * @return the instance
+	 */
+	static TspInstance createInstance(int cityCount){
+		Random random = new Random(cityCount);
+		double[][] cities = new double[cityCount][2];
+		for(double[] city : cities){
+			city[0] = random.nextDouble() * 100;
+			city[1] = random.nextDouble() * 100;
+		}
+		TspInstance instance = new TspInstance(cities);
+		instance.setJobId(JOB_ID);
+		ProblemRegistry.register(instance);
+		return instance;
+	}
+
+	/**
+	 * Creates the root of the search tree of an instance, as the job does.
+	 *
+	 * @param instance the instance
+	 * @param boundType the kind of lower bound
+	 * @return the root
+	 */
+	static EuclideanTSPSolution createRoot(TspInstance instance, int boundType){
+		List<Integer> permutation = new ArrayList<Integer>();
+		for(int i = 1; i < instance.size(); i++){
+			permutation.add(i);
+		}
+		EuclideanTSPSolution root = new EuclideanTSPSolution(instance, new int[]{0}, permutation);
+		root.setBoundType(boundType);
+		return root;
+	}
+
+	/**
+	 * Writes an object and reads it back, and checks that the object that was read is written the same way.
+	 *
+	 * @param object the object
+	 * @param name the name of the check
+	 * @return the object that was read
+	 * @throws Exception the exception
+	 */
+	private static Object roundTrip(Object object, String name) throws Exception {
+		byte[] bytes = write(object);
+		Object read = read(bytes);
+		check(Arrays.equals(write(read), bytes), name + ": written again the same way");
+		return read;
+	}
+
+	/**
+	 * Serializes an object.
+	 *
+	 * @param object the object
+	 * @return the bytes
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	static byte[] write(Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Deserializes an object.
+	 *
+	 * @param bytes the bytes
+	 * @return the object
+	 * @throws Exception the exception
+	 */
+	static Object read(byte[] bytes) throws Exception {
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+		return in.readObject();
+	}
+
+	/**
+	 * Records the outcome of a check, and prints it if it failed.
+	 *
+	 * @param passed whether the check passed
+	 * @param name the name of the check
+	 */
+	private static void check(boolean passed, String name){
+		checks++;
+		if(!passed){
+			failures++;
+			System.out.println("FAILED " + name);
+		}
+	}
+}
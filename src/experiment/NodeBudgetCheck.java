@@ -0,0 +1,149 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.util.Random;
+
+import jobs.EuclideanTspJob;
+import system.LocalEngine;
+import utils.Constants;
+import api.Space;
+
+/**
+ * A regression check for the tasks that run out of their node budget: it solves small random instances with a tiny budget, so that almost every task hands back the rest of its sub-tree, and compares the tours with the optimal ones found by brute force.
+ * A complete tour that is among the branches left when the budget runs out must still be considered, or the job can return a tour that is not optimal.
+ * It exits with status 1 if any tour is not optimal.
+ */
+public class NodeBudgetCheck {
+
+	/** The number of cities of the instances. */
+	private static final int CITY_COUNT = 10;
+
+	/** The number of random instances solved with every budget. */
+	private static final int SEED_COUNT = 8;
+
+	/** The node budgets that the instances are solved with. */
+	private static final long[] NODE_BUDGETS = {1, 3};
+
+	/** The difference in cost below which two tours are considered equally good. */
+	private static final double TOLERANCE = 1e-9;
+
+	/**
+	 * Instantiates a new node budget check.
+	 */
+	private NodeBudgetCheck(){
+
+	}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the arguments: optionally the number of workers
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		int workerCount = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+		int failures = 0;
+		for(long nodeBudget : NODE_BUDGETS){
+			for(int seed = 0; seed < SEED_COUNT; seed++){
+				double[][] cities = createCities(seed);
+				double optimum = solveByBruteForce(cities);
+				// Every job needs an engine of its own, since an engine keeps the upper bound of the job that it has solved
+				Space space = LocalEngine.start(workerCount, Constants.TARGET_TASK_RUN_TIME);
+				EuclideanTspJob job = new EuclideanTspJob(cities, Constants.IN_PLACE_SEARCH, Constants.PATH_BOUND);
+				job.setBudget(nodeBudget, 0);
+				job.generateTasks(space);
+				double cost = getCost(cities, job.collectResults(space));
+				boolean optimal = Math.abs(cost - optimum) < TOLERANCE;
+				System.out.println("CHECK budget " + nodeBudget + " seed " + seed + ": " + cost + " vs optimum " + optimum + (optimal ? " OK" : " FAILED"));
+				if(!optimal){
+					failures++;
+				}
+			}
+		}
+		System.out.println(failures == 0 ? "All tours are optimal." : failures + " tours are not optimal.");
+		System.exit(failures == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Creates a random instance.
+	 *
+	 * @param seed the seed
+	 * @return the cities
+	 */
+	private static double[][] createCities(int seed){
+		Random random = new Random(seed);
+		double[][] cities = new double[CITY_COUNT][2];
+		for(double[] city : cities){
+			city[0] = random.nextDouble() * 100;
+			city[1] = random.nextDouble() * 100;
+		}
+		return cities;
+	}
+
+	/**
+	 * Gets the cost of a tour.
+	 *
+	 * @param cities the cities
+	 * @param tour the tour, starting at city 0
+	 * @return the cost
+	 */
+	private static double getCost(double[][] cities, int[] tour){
+		double cost = 0;
+		for(int i = 0; i < tour.length; i++){
+			double[] from = cities[tour[i]];
+			double[] to = cities[tour[(i + 1) % tour.length]];
+			cost += Math.hypot(from[0] - to[0], from[1] - to[1]);
+		}
+		return cost;
+	}
+
+	/**
+	 * Finds the cost of the optimal tour by trying every tour that starts at city 0.
+	 *
+	 * @param cities the cities
+	 * @return the cost of the optimal tour
+	 */
+	private static double solveByBruteForce(double[][] cities){
+		int[] tour = new int[cities.length];
+		for(int i = 0; i < tour.length; i++){
+			tour[i] = i;
+		}
+		return permute(cities, tour, 1, Double.MAX_VALUE);
+	}
+
+	/**
+	 * Tries every order of the cities from a position of the tour onwards.
+	 *
+	 * @param cities the cities
+	 * @param tour the tour, whose cities before the position are fixed
+	 * @param position the position
+	 * @param best the cost of the best tour found so far
+	 * @return the cost of the best tour
+	 */
+	private static double permute(double[][] cities, int[] tour, int position, double best){
+		if(position == tour.length){
+			return Math.min(best, getCost(cities, tour));
+		}
+		for(int i = position; i < tour.length; i++){
+			swap(tour, position, i);
+			best = permute(cities, tour, position + 1, best);
+			swap(tour, position, i);
+		}
+		return best;
+	}
+
+	/**
+	 * Swaps two cities of a tour.
+	 *
+	 * @param tour the tour
+	 * @param i the position of the first city
+	 * @param j the position of the second city
+	 */
+	private static void swap(int[] tour, int i, int j){
+		int city = tour[i];
+		tour[i] = tour[j];
+		tour[j] = city;
+	}
+}
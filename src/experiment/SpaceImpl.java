@@ -280,7 +280,7 @@ public class SpaceImpl extends UnicastRemoteObject implements Space
 		this.waitingTasks.put(successorTask.getTaskId(), successorTask);
 		
 		// if the parent task is not the root task
-		if(parentTask.getSuccessorTaskId() != null){
+		if(parentTask.getSuccessorTaskId() != Constants.NO_TASK_ID){
 			/* 
 			 * Update the parent successor's inputList.
 			 * In that list, the parent task must be substituted with the child tasks' successor task 
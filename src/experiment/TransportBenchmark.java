@@ -0,0 +1,176 @@
+/*
+ * @author gautham
+ */
+package experiment;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.MarshalException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+
+import shared.DoubleShared;
+import shared.Shared;
+import solution.TspInstance;
+import system.NioConnection;
+import system.NioEventLoop;
+import utils.Constants;
+import api.Task;
+
+/**
+ * Measures how long the Space takes to send a batch of tasks to a computer and get the reply, over RMI and over a {@link NioConnection}, on the loopback interface.
+ * The other side only counts the tasks, so the time is that of the transport: writing, sending and reading the call and its reply.
+ * The batch is the one of {@link CodecBenchmark}; a call with a single task is measured as well, as the computers make it when they store a result.
+ */
+public class TransportBenchmark {
+
+	/** The number of cities of the instance. */
+	private static final int CITY_COUNT = 40;
+
+	/** The number of calls that are made before the measurement, so that the code is compiled. */
+	private static final int WARMUP_CALLS = 5000;
+
+	/** The number of calls that are measured. */
+	private static final int MEASURED_CALLS = 5000;
+
+	/** The operation of the NIO calls. */
+	private static final byte EXECUTE_BATCH = 1;
+
+	/**
+	 * Instantiates a new transport benchmark.
+	 */
+	private TransportBenchmark(){
+
+	}
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the arguments
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		TspInstance instance = CodecCheck.createInstance(CITY_COUNT);
+		ArrayList<Task<?>> batch = CodecBenchmark.createBatch(instance, Constants.PATH_BOUND);
+		List<Task<?>> single = new ArrayList<Task<?>>(batch.subList(0, 1));
+		Shared<?> shared = new DoubleShared(instance.size() * 100.0);
+
+		// The exported object is only weakly reachable through its stub
+		CountingReceiver exported = new CountingReceiver();
+		BatchReceiver rmi = (BatchReceiver) UnicastRemoteObject.exportObject(exported, 0);
+		System.out.println(String.format("RMI: batch of %d tasks %.1f us/call, single task %.1f us/call",
+				batch.size(), measure(rmi, batch, shared), measure(rmi, single, shared)));
+		UnicastRemoteObject.unexportObject(exported, true);
+
+		BatchReceiver nio = connect();
+		System.out.println(String.format("NIO: batch of %d tasks %.1f us/call, single task %.1f us/call",
+				batch.size(), measure(nio, batch, shared), measure(nio, single, shared)));
+		System.exit(0);
+	}
+
+	/**
+	 * Measures the mean time of a call.
+	 *
+	 * @param receiver the other side
+	 * @param tasks the tasks sent with every call
+	 * @param shared the shared object sent with every call
+	 * @return the mean time of a call, in microseconds
+	 * @throws RemoteException the remote exception
+	 */
+	private static double measure(BatchReceiver receiver, List<Task<?>> tasks, Shared<?> shared) throws RemoteException {
+		for(int call = 0; call < WARMUP_CALLS; call++){
+			receiver.executeBatch(tasks, shared);
+		}
+		long start = System.nanoTime();
+		for(int call = 0; call < MEASURED_CALLS; call++){
+			if(receiver.executeBatch(tasks, shared) != tasks.size()){
+				throw new IllegalStateException("The tasks were not all received");
+			}
+		}
+		return (System.nanoTime() - start) / 1e3 / MEASURED_CALLS;
+	}
+
+	/**
+	 * Connects two NIO connections to each other over the loopback interface, each on an event loop of its own, as the Space and a computer are.
+	 *
+	 * @return the calling side
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static BatchReceiver connect() throws IOException {
+		ServerSocketChannel serverChannel = ServerSocketChannel.open();
+		serverChannel.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		SocketChannel callingChannel = SocketChannel.open(serverChannel.socket().getLocalSocketAddress());
+		SocketChannel receivingChannel = serverChannel.accept();
+		serverChannel.close();
+
+		NioEventLoop receivingLoop = new NioEventLoop(true);
+		receivingLoop.start();
+		NioConnection receivingConnection = new NioConnection(receivingChannel, receivingLoop);
+		final CountingReceiver receiver = new CountingReceiver();
+		receivingConnection.start(new NioConnection.RequestHandler(){
+			@SuppressWarnings("unchecked")
+			public Object handle(byte operation, Object[] args) throws Exception {
+				return receiver.executeBatch((List<Task<?>>) args[0], (Shared<?>) args[1]);
+			}
+
+			public void closed(IOException cause){
+
+			}
+		});
+
+		NioEventLoop callingLoop = new NioEventLoop(true);
+		callingLoop.start();
+		final NioConnection callingConnection = new NioConnection(callingChannel, callingLoop);
+		callingConnection.start(new NioConnection.RequestHandler(){
+			public Object handle(byte operation, Object[] args) throws Exception {
+				throw new MarshalException("The calling side takes no calls");
+			}
+
+			public void closed(IOException cause){
+
+			}
+		});
+		return new BatchReceiver(){
+			public long executeBatch(List<Task<?>> tasks, Shared<?> shared) throws RemoteException {
+				return (Long) callingConnection.call(EXECUTE_BATCH, tasks, shared);
+			}
+		};
+	}
+
+	/**
+	 * The call that is measured, as the Space makes it on a computer.
+	 */
+	public interface BatchReceiver extends Remote {
+
+		/**
+		 * Receives a batch of tasks.
+		 *
+		 * @param tasks the tasks
+		 * @param shared the shared object
+		 * @return the number of tasks
+		 * @throws RemoteException the remote exception
+		 */
+		long executeBatch(List<Task<?>> tasks, Shared<?> shared) throws RemoteException;
+	}
+
+	/**
+	 * Counts the tasks that it receives.
+	 */
+	private static class CountingReceiver implements BatchReceiver {
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see experiment.TransportBenchmark.BatchReceiver#executeBatch(java.util.List, shared.Shared)
+		 */
+		public long executeBatch(List<Task<?>> tasks, Shared<?> shared){
+			return tasks.size();
+		}
+	}
+}
@@ -13,12 +13,16 @@ import java.util.Map;
 
 import shared.DoubleShared;
 import shared.Shared;
+import solution.DistanceMatrix;
 import solution.EuclideanTSPSolution;
 import solution.Solution;
+import solution.TspInstance;
 import tasks.BranchAndBound;
+import utils.Constants;
+import utils.TaskIdGenerator;
+import api.ProblemRegistry;
 import api.Result;
 import api.Space;
-import api.Task;
 
 /**
  * This class represents the entire work involved in solving a Traveling Salesman Problem (TSP), where the cities are points in the 2D Euclidean plane. * 
@@ -28,15 +32,103 @@ public class EuclideanTspJob implements Job<int[]>{
 	/** The cities in 2D Euclidean plane that are part of the TSP. */
 	private double[][] cities;
 	
+	/** The TSP instance, which is put in the Space once; the tasks only carry its job id. */
+	private TspInstance instance;
+	
+	/** The distances between the cities; the same matrix is used by the solutions created in this JVM. */
+	private DistanceMatrix distances;
+	
+	/** The strategy used by the atomic tasks to explore their sub-trees. */
+	private int searchMode;
+	
+	/** The kind of lower bound computed for the nodes of the search tree. */
+	private int boundType;
+	
+	/** The number of nodes that an atomic task searches before it gives up the rest of its sub-tree; 0 if it is unlimited. */
+	private long nodeBudget;
+	
+	/** The time, in milliseconds, that an atomic task searches before it gives up the rest of its sub-tree; 0 if it is unlimited. */
+	private long timeBudget;
+	
+	/** The tour found by the greedy approach; it is the minimal tour if no task finds a tour that is cheaper. */
+	private int[] greedyTour;
+	
 	/**
 	 * Instantiates a new Euclidean TSP task.
 	 *
 	 * @param cities the cities in 2D Euclidean plane that are part of the TSP; it codes the x and y coordinates of city[i]: cities[i][0] is the x-coordinate of city[i] and cities[i][1] is the y-coordinate of city[i]
 	 */
 	public EuclideanTspJob(double[][] cities){
-		this.cities = cities;		
+		this(cities, Constants.STACK_SEARCH, Constants.PATH_BOUND);
 	}	
 	
+	/**
+	 * Instantiates a new Euclidean TSP task.
+	 *
+	 * @param cities the cities in 2D Euclidean plane that are part of the TSP
+	 * @param searchMode the strategy used by the atomic tasks to explore their sub-trees; see {@link BranchAndBound#setSearchMode(int)}
+	 * @param boundType the kind of lower bound computed for the nodes of the search tree; see {@link EuclideanTSPSolution#setBoundType(int)}
+	 */
+	public EuclideanTspJob(double[][] cities, int searchMode, int boundType){
+		this.cities = cities;
+		this.instance = new TspInstance(cities);
+		this.distances = instance.getDistances();
+		this.searchMode = searchMode;
+		this.boundType = boundType;
+	}
+	
+	/**
+	 * Gets the search mode that a name given at startup stands for.
+	 *
+	 * @param name "stack", "in-place", "best-first" or "fork-join"
+	 * @return the search mode
+	 */
+	public static int parseSearchMode(String name){
+		if(name.equalsIgnoreCase("stack")){
+			return Constants.STACK_SEARCH;
+		}
+		if(name.equalsIgnoreCase("in-place")){
+			return Constants.IN_PLACE_SEARCH;
+		}
+		if(name.equalsIgnoreCase("best-first")){
+			return Constants.BEST_FIRST_SEARCH;
+		}
+		if(name.equalsIgnoreCase("fork-join")){
+			return Constants.FORK_JOIN_SEARCH;
+		}
+		throw new IllegalArgumentException("Unknown search mode " + name + "; expected stack, in-place, best-first or fork-join");
+	}
+	
+	/**
+	 * Gets the kind of lower bound that a name given at startup stands for.
+	 *
+	 * @param name "path", "spanning-tree" or "held-karp"
+	 * @return the kind of lower bound
+	 */
+	public static int parseBoundType(String name){
+		if(name.equalsIgnoreCase("path")){
+			return Constants.PATH_BOUND;
+		}
+		if(name.equalsIgnoreCase("spanning-tree")){
+			return Constants.SPANNING_TREE_BOUND;
+		}
+		if(name.equalsIgnoreCase("held-karp")){
+			return Constants.HELD_KARP_BOUND;
+		}
+		throw new IllegalArgumentException("Unknown lower bound " + name + "; expected path, spanning-tree or held-karp");
+	}
+	
+	/**
+	 * Limits the work of every atomic task, so that a large sub-tree is handed back to the Space in parts instead of running on one computer until the end of the job.
+	 *
+	 * @param nodeBudget the number of nodes, or 0 for no limit; see {@link BranchAndBound#setNodeBudget(long)}
+	 * @param timeBudget the time in milliseconds, or 0 for no limit; see {@link BranchAndBound#setTimeBudget(long)}
+	 */
+	public void setBudget(long nodeBudget, long timeBudget){
+		this.nodeBudget = nodeBudget;
+		this.timeBudget = timeBudget;
+	}
+	
 	
 	/** Denotes the job start time. It used to record the time taken for execution of the task.*/
 	private long startTime;
@@ -55,10 +147,26 @@ public class EuclideanTspJob implements Job<int[]>{
 			permutation[i] = i + 1;
 		}
 		
+		try{
+			// The client needs the instance as well, to read the solution of the result
+			instance.setJobId(space.putProblem(instance));
+			ProblemRegistry.register(instance);
+			// The tasks that the client creates must not have the ids of tasks that another client or a computer created
+			TaskIdGenerator.setNodeId(space.createNodeId());
+		}
+		catch(RemoteException e){
+			e.printStackTrace();
+			return;
+		}
+		
 		// The first task has level = 0
-		Solution<Double> solution = new EuclideanTSPSolution(cities, prefix, Arrays.asList(permutation));
+		EuclideanTSPSolution solution = new EuclideanTSPSolution(instance, prefix, Arrays.asList(permutation));
+		solution.setBoundType(boundType);
 				
-		Task task = new BranchAndBound(solution, 0);
+		BranchAndBound task = new BranchAndBound(solution, 0);
+		task.setSearchMode(searchMode);
+		task.setNodeBudget(nodeBudget);
+		task.setTimeBudget(timeBudget);
 		// The initial upper bound is calculated using the greedy approach.
 		double upperBound = getGreedyUpperBound();
 		System.out.println("Init Upperbound: " + upperBound);
@@ -102,6 +210,11 @@ public class EuclideanTspJob implements Job<int[]>{
 		}catch(NullPointerException e){
 			e.printStackTrace();
 		}
+		if(minSolution == null){ // No task found a tour that is cheaper than the initial upper bound
+			System.out.println("Min Tour: " + Arrays.toString(greedyTour));
+			System.out.println("Min distance: " + calculateDistance(greedyTour));
+			return greedyTour;
+		}
 		System.out.println("Min Tour: " + Arrays.toString(minSolution.getPathFromRoot()));
 		System.out.println("Min distance: " + minSolution.getLowerBound());
 		return minSolution.getPathFromRoot();
@@ -117,29 +230,15 @@ public class EuclideanTspJob implements Job<int[]>{
 	private double calculateDistance(int[] order){
 		double distance = 0;
 		for(int j = 0; j < order.length - 1; j++){
-			distance += getEuclideanDistance(cities[order[j]], cities[order[j + 1]]);				
+			distance += distances.get(order[j], order[j + 1]);				
 		}
-		distance += getEuclideanDistance(cities[order[order.length - 1]], cities[0]);
-		return distance;
-	}
-	
-	/**
-	 * Calculate the Euclidean distance.
-	 *
-	 * @param pointA the starting point
-	 * @param pointB the ending point
-	 * @return distance the distance between the points
-	 */
-	private double getEuclideanDistance(double[] pointA, double[] pointB){		
-		double temp1 = Math.pow((pointA[0] - pointB[0]), 2);
-		double temp2 = Math.pow((pointA[1] - pointB[1]), 2);
-		double distance = Math.sqrt(temp1 + temp2);
+		distance += distances.get(order[order.length - 1], 0);
 		return distance;
 	}
 	
 	
 	/**
-	 * Gets the greedy upper bound.
+	 * Gets the greedy upper bound. The greedy tour is kept so that it can be returned if it turns out to be minimal.
 	 *
 	 * @return the greedy upper bound
 	 */
@@ -155,7 +254,7 @@ public class EuclideanTspJob implements Job<int[]>{
 			for(int j = 0; j < cities.length; j++){
 				if(j != visitedCities.get(i)){
 					//System.out.println("Distance between " + prefix[i] + " and " + j);
-					distance[index] = getEuclideanDistance(cities[visitedCities.get(i)], cities[j]);
+					distance[index] = distances.get(visitedCities.get(i), j);
 					List<Integer> list = distanceMap.get(distance[index]);
 					if(list == null){
 						list = new LinkedList<Integer>();
@@ -183,7 +282,11 @@ public class EuclideanTspJob implements Job<int[]>{
 				}
 			}
 		}		
-		upperBound += getEuclideanDistance(cities[visitedCities.get(visitedCities.size() - 1)], cities[0]);
+		upperBound += distances.get(visitedCities.get(visitedCities.size() - 1), 0);
+		greedyTour = new int[visitedCities.size()];
+		for(int i = 0; i < greedyTour.length; i++){
+			greedyTour[i] = visitedCities.get(i);
+		}
 		return upperBound;
 	}
 	
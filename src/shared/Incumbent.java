@@ -0,0 +1,60 @@
+/*
+ * @author gautham
+ */
+package shared;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents the cost of the best known solution as a primitive double that only ever decreases.
+ * The value is held in an atomic long as the bits of the double, so reading it is a plain volatile load, without locking or boxing.
+ * A proposed value replaces the current one, by compare-and-set, only if it is smaller.
+ * The computer keeps one instance, which the tasks running on it read in their inner loops instead of going through the shared object.
+ */
+public final class Incumbent {
+
+	/** The bits of the current value, as returned by {@link Double#doubleToLongBits(double)}. */
+	private final AtomicLong bits = new AtomicLong(Double.doubleToLongBits(Double.MAX_VALUE));
+
+	/**
+	 * Gets the current value.
+	 *
+	 * @return the value, or Double.MAX_VALUE if no value has been offered yet
+	 */
+	public double get() {
+		return Double.longBitsToDouble(bits.get());
+	}
+
+	/**
+	 * Proposes a new value, which replaces the current value only if it is smaller.
+	 *
+	 * @param value the proposed value
+	 * @return true, if the value replaced the current value
+	 */
+	public boolean offer(double value) {
+		long proposed = Double.doubleToLongBits(value);
+		while(true){
+			long current = bits.get();
+			if(!(value < Double.longBitsToDouble(current))){
+				return false;
+			}
+			if(bits.compareAndSet(current, proposed)){
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Proposes the value of a shared object, if the value is a number.
+	 *
+	 * @param shared the shared object
+	 * @return true, if the value replaced the current value
+	 */
+	public boolean offer(Shared<?> shared) {
+		Object value = shared == null ? null : shared.get();
+		if(value instanceof Number){
+			return offer(((Number) value).doubleValue());
+		}
+		return false;
+	}
+}
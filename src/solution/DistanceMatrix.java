@@ -0,0 +1,134 @@
+/*
+ * @author gautham
+ */
+package solution;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import utils.Constants;
+
+/**
+ * The DistanceMatrix stores the Euclidean distance between every pair of cities of a TSP instance in a flat array.
+ * It is built once per instance and shared by all the solutions and tasks of that instance in a JVM, so that computing a bound only involves array lookups.
+ * It also holds the candidate list of every city: its nearest neighbours, in increasing order of distance.
+ */
+public final class DistanceMatrix {
+
+	/** The maximum number of instances whose matrices are cached in the JVM. */
+	private static final int CACHE_SIZE = 4;
+
+	/** The most recently used matrices; the first one is the most recent. */
+	private static final LinkedList<DistanceMatrix> cache = new LinkedList<DistanceMatrix>();
+
+	/** The cities from which the matrix was built. */
+	private final double[][] cities;
+
+	/** The number of cities. */
+	private final int size;
+
+	/** distances[i * size + j] is the distance between city i and city j. */
+	private final double[] distances;
+
+	/** neighbours[i] holds the {@link Constants#CANDIDATE_LIST_SIZE} cities that are nearest to city i, nearest first. */
+	private final int[][] neighbours;
+
+	/**
+	 * Instantiates a new distance matrix.
+	 *
+	 * @param cities the cities in 2D Euclidean plane
+	 */
+	private DistanceMatrix(double[][] cities){
+		this.cities = cities;
+		this.size = cities.length;
+		this.distances = new double[size * size];
+		for(int i = 0; i < size; i++){
+			for(int j = i + 1; j < size; j++){
+				double dx = cities[i][0] - cities[j][0];
+				double dy = cities[i][1] - cities[j][1];
+				double distance = Math.sqrt(dx * dx + dy * dy);
+				distances[i * size + j] = distance;
+				distances[j * size + i] = distance;
+			}
+		}
+
+		this.neighbours = new int[size][];
+		Integer[] others = new Integer[size - 1];
+		for(int i = 0; i < size; i++){
+			final int city = i;
+			for(int j = 0, k = 0; j < size; j++){
+				if(j != city){
+					others[k++] = j;
+				}
+			}
+			// The sort is stable, so cities at the same distance stay in increasing order
+			Arrays.sort(others, new Comparator<Integer>(){
+				public int compare(Integer cityA, Integer cityB){
+					return Double.compare(get(city, cityA), get(city, cityB));
+				}
+			});
+			neighbours[i] = new int[Math.min(others.length, Constants.CANDIDATE_LIST_SIZE)];
+			for(int j = 0; j < neighbours[i].length; j++){
+				neighbours[i][j] = others[j];
+			}
+		}
+	}
+
+	/**
+	 * Gets the distance matrix of the given cities, building it only if no matrix of an equal instance has been built in this JVM.
+	 * The cities of a deserialized task are a copy of the original array, hence the instances are compared by value.
+	 *
+	 * @param cities the cities in 2D Euclidean plane
+	 * @return the distance matrix
+	 */
+	public static synchronized DistanceMatrix getInstance(double[][] cities){
+		Iterator<DistanceMatrix> iterator = cache.iterator();
+		while(iterator.hasNext()){
+			DistanceMatrix matrix = iterator.next();
+			if(matrix.cities == cities || Arrays.deepEquals(matrix.cities, cities)){
+				iterator.remove();
+				cache.addFirst(matrix);
+				return matrix;
+			}
+		}
+		DistanceMatrix matrix = new DistanceMatrix(cities);
+		cache.addFirst(matrix);
+		if(cache.size() > CACHE_SIZE){
+			cache.removeLast();
+		}
+		return matrix;
+	}
+
+	/**
+	 * Gets the distance between two cities.
+	 *
+	 * @param cityA the starting city
+	 * @param cityB the ending city
+	 * @return the distance
+	 */
+	public double get(int cityA, int cityB){
+		return distances[cityA * size + cityB];
+	}
+
+	/**
+	 * Gets the candidate list of a city: its nearest neighbours, nearest first.
+	 * The array is shared and must not be modified.
+	 *
+	 * @param city the city
+	 * @return the neighbours
+	 */
+	public int[] getNeighbours(int city){
+		return neighbours[city];
+	}
+
+	/**
+	 * Gets the number of cities.
+	 *
+	 * @return the size
+	 */
+	public int size(){
+		return size;
+	}
+}
@@ -0,0 +1,336 @@
+/*
+ * @author gautham
+ */
+package solution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import utils.Constants;
+
+/**
+ * The EuclideanTSPSearchState walks the search tree of a Traveling Salesman Problem in place.
+ * It keeps one mutable tour and one array of the cities that are yet to be visited.
+ * Descending into a branch moves the chosen city out of the remaining cities and appends it to the tour; ascending puts it back.
+ * The branches of a node are generated nearest-first from the candidate list of the last city and sorted by their lower bounds, so the most promising branch is explored first.
+ * All the arrays are allocated when the state is created; walking the tree does not allocate.
+ */
+class EuclideanTSPSearchState extends SearchState {
+
+	/** The TSP instance. */
+	private final TspInstance instance;
+
+	/** The distances between the cities. */
+	private final DistanceMatrix distances;
+
+	/** The kind of lower bound computed for the nodes. */
+	private final int boundType;
+
+	/** The spanning tree bound calculator, or null if the path bound is used. */
+	private final OneTreeBound oneTree;
+
+	/** The cost of the best known tour. */
+	private double upperBound = Double.MAX_VALUE;
+
+	/** The tour from the root; only the first pathLength entries are valid. */
+	private final int[] path;
+
+	/** The number of cities in the tour. */
+	private int pathLength;
+
+	/** The length of the tour when the state was created. */
+	private final int rootPathLength;
+
+	/** The cities that are yet to be visited; only the first remainingCount entries are valid. */
+	private final int[] remaining;
+
+	/** The number of cities that are yet to be visited. */
+	private int remainingCount;
+
+	/** position[c] is the index of city c in the remaining array, or -1 if c is on the tour. */
+	private final int[] position;
+
+	/** positions[i] is the index in the remaining array from which the (i + 1)th city of the tour was taken; it is needed to undo the descend. */
+	private final int[] positions;
+
+	/** pathCost[i] is the cost of the tour made up of the first i + 1 cities. */
+	private final double[] pathCost;
+
+	/** penalties[i] are the Held-Karp penalties tuned for the tour made up of the first i + 1 cities, or null if the Held-Karp bound is not used. */
+	private final float[][] penalties;
+
+	/** branchCities[i] are the cities that extend the tour made up of the first i + 1 cities, most promising first. */
+	private final int[][] branchCities;
+
+	/** branchBounds[i][j] is the lower bound of the tour extended by branchCities[i][j]. */
+	private final double[][] branchBounds;
+
+	/**
+	 * branchPenalties[i][j] are the Held-Karp penalties tuned for the tour extended by branchCities[i][j], or null if the Held-Karp bound is not used.
+	 * A row is only allocated once its depth is expanded, with as many entries as the tour has branches there, and an entry once its branch is bounded, so a search that stays shallow does not pay for n * n * n penalties.
+	 */
+	private final float[][][] branchPenalties;
+
+	/** stamp[c] equals currentStamp if city c has already been added to the branches of the node being expanded. */
+	private final int[] stamp;
+
+	/** The stamp of the node being expanded. */
+	private int currentStamp;
+
+	/**
+	 * Instantiates a new search state positioned at the given partial tour.
+	 *
+	 * @param instance the TSP instance
+	 * @param distances the distances between the cities
+	 * @param boundType the kind of lower bound computed for the nodes
+	 * @param pathFromRoot the path from root
+	 * @param rootPathCost the cost of the path from root
+	 * @param taskPermutation the cities that are yet to be visited
+	 * @param rootPenalties the Held-Karp penalties tuned for the path from root; it is only used with the Held-Karp bound
+	 */
+	EuclideanTSPSearchState(TspInstance instance, DistanceMatrix distances, int boundType, int[] pathFromRoot, double rootPathCost, List<Integer> taskPermutation, float[] rootPenalties){
+		int n = instance.size();
+		this.instance = instance;
+		this.distances = distances;
+		this.boundType = boundType;
+		this.oneTree = boundType != Constants.PATH_BOUND ? new OneTreeBound(distances) : null;
+		this.path = new int[n];
+		this.pathCost = new double[n];
+		this.positions = new int[n];
+		this.remaining = new int[n];
+		this.position = new int[n];
+		this.stamp = new int[n];
+		this.branchCities = new int[n][n];
+		this.branchBounds = new double[n][n];
+
+		System.arraycopy(pathFromRoot, 0, path, 0, pathFromRoot.length);
+		this.pathLength = pathFromRoot.length;
+		this.rootPathLength = pathFromRoot.length;
+		this.pathCost[pathLength - 1] = rootPathCost;
+
+		Arrays.fill(position, -1);
+		if(taskPermutation != null){
+			for(Integer city : taskPermutation){
+				position[city] = remainingCount;
+				remaining[remainingCount++] = city;
+			}
+		}
+
+		if(boundType == Constants.HELD_KARP_BOUND){
+			this.penalties = new float[n][];
+			this.penalties[pathLength - 1] = rootPenalties.clone();
+			this.branchPenalties = new float[n][][];
+		}
+		else{
+			this.penalties = null;
+			this.branchPenalties = null;
+		}
+	}
+
+	/**
+	 * Generates the branches of the current node: the remaining cities on the candidate list of the last city, nearest first, followed by the other remaining cities.
+	 * The lower bound of every branch is computed and the branches are sorted by it with an insertion sort, which keeps ties nearest-first.
+	 * Branches whose lower bound exceeds the upper bound are dropped.
+	 * @see solution.SearchState#expand()
+	 */
+	@Override
+	public int expand() {
+		int depth = pathLength - 1;
+		int[] branches = branchCities[depth];
+		int count = 0;
+		currentStamp++;
+		for(int city : distances.getNeighbours(path[depth])){
+			if(position[city] >= 0){
+				branches[count++] = city;
+				stamp[city] = currentStamp;
+			}
+		}
+		for(int i = 0; i < remainingCount; i++){
+			if(stamp[remaining[i]] != currentStamp){
+				branches[count++] = remaining[i];
+			}
+		}
+
+		if(penalties != null && branchPenalties[depth] == null){
+			branchPenalties[depth] = new float[count][];
+		}
+		double[] bounds = branchBounds[depth];
+		for(int i = 0; i < count; i++){
+			bounds[i] = computeBranchBound(depth, i);
+		}
+		// Insertion sort, moving the penalties along with the cities and the bounds.
+		float[][] penaltyArrays = penalties != null ? branchPenalties[depth] : null;
+		for(int i = 1; i < count; i++){
+			int city = branches[i];
+			double bound = bounds[i];
+			float[] branchPenalty = penaltyArrays != null ? penaltyArrays[i] : null;
+			int j = i - 1;
+			for(; j >= 0 && bounds[j] > bound; j--){
+				branches[j + 1] = branches[j];
+				bounds[j + 1] = bounds[j];
+				if(penaltyArrays != null){
+					penaltyArrays[j + 1] = penaltyArrays[j];
+				}
+			}
+			branches[j + 1] = city;
+			bounds[j + 1] = bound;
+			if(penaltyArrays != null){
+				penaltyArrays[j + 1] = branchPenalty;
+			}
+		}
+		int kept = 0;
+		for(int i = 0; i < count; i++){
+			if(bounds[i] <= upperBound){
+				branches[kept] = branches[i];
+				bounds[kept] = bounds[i];
+				if(penaltyArrays != null){
+					float[] branchPenalty = penaltyArrays[kept];
+					penaltyArrays[kept] = penaltyArrays[i];
+					penaltyArrays[i] = branchPenalty;
+				}
+				kept++;
+			}
+		}
+		return kept;
+	}
+
+	/**
+	 * Computes the lower bound of the tour extended by one of the branches of the current node.
+	 *
+	 * @param depth the index of the last city of the tour
+	 * @param branch the index of the branch
+	 * @return the lower bound
+	 */
+	private double computeBranchBound(int depth, int branch){
+		int city = branchCities[depth][branch];
+		double cost = pathCost[depth] + distances.get(path[depth], city);
+		int index = removeRemaining(city);
+		double bound;
+		if(penalties != null){
+			float[] childPenalties = branchPenalties[depth][branch];
+			if(childPenalties == null){
+				childPenalties = new float[penalties[depth].length];
+				branchPenalties[depth][branch] = childPenalties;
+			}
+			System.arraycopy(penalties[depth], 0, childPenalties, 0, childPenalties.length);
+			bound = oneTree.computeHeldKarp(cost, city, remaining, remainingCount, childPenalties, true, upperBound);
+		}
+		else if(oneTree != null){
+			bound = oneTree.compute(cost, city, remaining, remainingCount);
+		}
+		else{
+			bound = cost + distances.get(city, path[0]);
+		}
+		restoreRemaining(city, index);
+		return bound;
+	}
+
+	/* (non-Javadoc)
+	 * @see solution.SearchState#descend(int)
+	 */
+	@Override
+	public double descend(int branch) {
+		int depth = pathLength - 1;
+		int city = branchCities[depth][branch];
+		positions[pathLength] = removeRemaining(city);
+		pathCost[pathLength] = pathCost[depth] + distances.get(path[depth], city);
+		if(penalties != null){
+			// The branch penalties stay untouched until the parent is expanded again, so they need not be copied
+			penalties[pathLength] = branchPenalties[depth][branch];
+		}
+		path[pathLength++] = city;
+		return branchBounds[depth][branch];
+	}
+
+	/* (non-Javadoc)
+	 * @see solution.SearchState#ascend()
+	 */
+	@Override
+	public void ascend() {
+		pathLength--;
+		restoreRemaining(path[pathLength], positions[pathLength]);
+	}
+
+	/**
+	 * Removes a city from the remaining cities by moving the last remaining city into its place.
+	 *
+	 * @param city the city
+	 * @return the index that the city occupied
+	 */
+	private int removeRemaining(int city){
+		int index = position[city];
+		int last = --remainingCount;
+		int lastCity = remaining[last];
+		remaining[index] = lastCity;
+		position[lastCity] = index;
+		remaining[last] = city;
+		position[city] = -1;
+		return index;
+	}
+
+	/**
+	 * Undoes {@link #removeRemaining(int)}.
+	 *
+	 * @param city the city
+	 * @param index the index that the city occupied
+	 */
+	private void restoreRemaining(int city, int index){
+		int last = remainingCount++;
+		int movedCity = remaining[index];
+		remaining[last] = movedCity;
+		position[movedCity] = last;
+		remaining[index] = city;
+		position[city] = index;
+	}
+
+	/* (non-Javadoc)
+	 * @see solution.SearchState#setUpperBound(double)
+	 */
+	@Override
+	public void setUpperBound(double upperBound) {
+		this.upperBound = upperBound;
+	}
+
+	/* (non-Javadoc)
+	 * @see solution.SearchState#isComplete()
+	 */
+	@Override
+	public boolean isComplete() {
+		return pathLength == instance.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see solution.SearchState#getDepth()
+	 */
+	@Override
+	public int getDepth() {
+		return pathLength - rootPathLength;
+	}
+
+	/* (non-Javadoc)
+	 * @see solution.SearchState#getMaxDepth()
+	 */
+	@Override
+	public int getMaxDepth() {
+		return instance.size() - rootPathLength;
+	}
+
+	/* (non-Javadoc)
+	 * @see solution.SearchState#toSolution()
+	 */
+	@Override
+	public Solution<?> toSolution() {
+		List<Integer> taskPermutation = new ArrayList<Integer>(remainingCount);
+		for(int i = 0; i < remainingCount; i++){
+			taskPermutation.add(remaining[i]);
+		}
+		EuclideanTSPSolution solution = new EuclideanTSPSolution(instance, distances, Arrays.copyOf(path, pathLength), pathCost[pathLength - 1], taskPermutation);
+		solution.setBoundType(boundType);
+		if(penalties != null){
+			solution.setPenalties(penalties[pathLength - 1].clone());
+		}
+		solution.computeLowerBound();
+		return solution;
+	}
+}
@@ -3,13 +3,22 @@
  */
 package solution;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 
 import shared.Shared;
+import utils.Constants;
+import utils.Varint;
+import api.ProblemRegistry;
 
 /**
  * The EuclideanTSPSolution represents the partial tour (from the root to the current node) in the search tree of a Traveling Salesman Problem (TSP).
@@ -19,11 +28,23 @@ public class EuclideanTSPSolution extends Solution<Double>{
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
 	
-	/** The cities in 2D Euclidean plane that are part of the TSP. */
-	protected double[][] cities;
+	/** The TSP instance; only its job id is sent along with the solution, unless it has not been put in the Space. */
+	private transient TspInstance instance;
 	
 	/** The taskPermutation denotes the permutation of cities that are yet to be explored from this node.*/
-	private List<Integer> taskPermutation;
+	private transient List<Integer> taskPermutation;
+	
+	/** The distances between the cities; it is shared with the children and looked up again after deserialization. */
+	private transient DistanceMatrix distances;
+	
+	/** The cost of the path from root, excluding the edge that closes the tour. The children extend it by one edge. */
+	private transient double pathCost;
+	
+	/** The kind of lower bound computed for this node and its children. */
+	private transient int boundType = Constants.PATH_BOUND;
+	
+	/** The Held-Karp penalties of the cities that were tuned for this node; the children start their own tuning from them. It is null until the bound has been computed. */
+	private transient float[] penalties;
 	
 	/**
 	 * Instantiates a new euclidean tsp solution.
@@ -33,9 +54,38 @@ public class EuclideanTSPSolution extends Solution<Double>{
 	 * @param taskPermutation the task permutation
 	 */
 	public EuclideanTSPSolution(double[][] cities, int[] pathFromRoot, List<Integer> taskPermutation){
-		this.cities = cities;
+		this(new TspInstance(cities), pathFromRoot, taskPermutation);
+	}
+	
+	/**
+	 * Instantiates a new euclidean tsp solution.
+	 *
+	 * @param instance the TSP instance
+	 * @param pathFromRoot the path from root
+	 * @param taskPermutation the task permutation
+	 */
+	public EuclideanTSPSolution(TspInstance instance, int[] pathFromRoot, List<Integer> taskPermutation){
+		this.instance = instance;
 		this.pathFromRoot = pathFromRoot;
 		this.taskPermutation = taskPermutation;
+		this.pathCost = calculateDistance(pathFromRoot);
+	}
+	
+	/**
+	 * Instantiates a new euclidean tsp solution whose path cost is already known, typically a child that extends its parent's path by one city.
+	 *
+	 * @param instance the TSP instance
+	 * @param distances the distances between the cities
+	 * @param pathFromRoot the path from root
+	 * @param pathCost the cost of the path from root, excluding the edge that closes the tour
+	 * @param taskPermutation the task permutation
+	 */
+	EuclideanTSPSolution(TspInstance instance, DistanceMatrix distances, int[] pathFromRoot, double pathCost, List<Integer> taskPermutation){
+		this.instance = instance;
+		this.distances = distances;
+		this.pathFromRoot = pathFromRoot;
+		this.pathCost = pathCost;
+		this.taskPermutation = taskPermutation;
 	}
 	
 	/* (non-Javadoc)
@@ -43,35 +93,97 @@ public class EuclideanTSPSolution extends Solution<Double>{
 	 */
 	@Override
 	public boolean isComplete() {
-		return pathFromRoot.length == cities.length;
+		return pathFromRoot.length == instance.size();
 	}
 
-	/* (non-Javadoc)
+	/** 
+	 * The children are generated nearest-first, from the candidate list of the last city on the path, and then sorted by their lower bounds.
+	 * The queue therefore holds the most promising child first; ties keep the nearest-first order.
 	 * @see solution.Solution#getChildren(shared.Shared)
 	 */
 	@Override
 	public Queue<Solution<Double>> getChildren(Shared shared) {
-		Queue<Solution<Double>> children = new LinkedList<Solution<Double>>();
+		List<EuclideanTSPSolution> children = new ArrayList<EuclideanTSPSolution>();
 		//System.out.println("Task permutation size " + taskPermutation.size());
 		if(taskPermutation != null){
-			for(int i = 0, n = taskPermutation.size(); i < n; i++){
+			DistanceMatrix distances = getDistances();
+			int lastCity = this.pathFromRoot[this.pathFromRoot.length - 1];
+			// The computer may not have received the initial upper bound yet
+			double upperBound = shared == null ? Double.MAX_VALUE : (Double) shared.get();
+			// The scratch space of the spanning tree bound is shared by all the children
+			OneTreeBound oneTree = boundType != Constants.PATH_BOUND ? new OneTreeBound(distances) : null;
+			int[] remaining = new int[taskPermutation.size()];
+			if(boundType == Constants.HELD_KARP_BOUND && penalties == null){
+				// Tune the penalties of this node from scratch, so that the children only need a few iterations
+				computeLowerBound(oneTree, remaining, upperBound);
+			}
+			for(int city : getBranchOrder(distances, lastCity)){
 				int[] pathFromRoot = Arrays.copyOfRange(this.pathFromRoot, 0, this.pathFromRoot.length + 1);
-				pathFromRoot[pathFromRoot.length - 1] = taskPermutation.get(i);
+				pathFromRoot[pathFromRoot.length - 1] = city;
 				
 				List<Integer> childTaskPermutation = new ArrayList<Integer>(taskPermutation);
 				
-				childTaskPermutation.remove(i);
+				childTaskPermutation.remove(Integer.valueOf(city));
 				
-				Solution<Double> solution = new EuclideanTSPSolution(cities, pathFromRoot, childTaskPermutation);
-				solution.computeLowerBound();
+				// The child's path is the parent's path plus one edge
+				double childPathCost = pathCost + distances.get(lastCity, city);
+				EuclideanTSPSolution solution = new EuclideanTSPSolution(instance, distances, pathFromRoot, childPathCost, childTaskPermutation);
+				solution.boundType = boundType;
+				if(penalties != null){
+					solution.penalties = penalties.clone();
+				}
+				solution.computeLowerBound(oneTree, remaining, upperBound);
 				
-				double upperBound = (Double) shared.get();
 				if(solution.lowerBound <= upperBound){
 					children.add(solution);
 				}
 			}
+			// The sort is stable, so children with equal bounds stay nearest-first.
+			Collections.sort(children, new Comparator<EuclideanTSPSolution>(){
+				public int compare(EuclideanTSPSolution solutionA, EuclideanTSPSolution solutionB){
+					return Double.compare(solutionA.lowerBound, solutionB.lowerBound);
+				}
+			});
+		}
+		return new LinkedList<Solution<Double>>(children);
+	}
+	
+	/**
+	 * Gets the remaining cities in the order in which they are branched on: first the ones on the candidate list of the last city, nearest first, then the others.
+	 *
+	 * @param distances the distances between the cities
+	 * @param lastCity the last city on the path
+	 * @return the remaining cities
+	 */
+	private List<Integer> getBranchOrder(DistanceMatrix distances, int lastCity){
+		List<Integer> order = new ArrayList<Integer>(taskPermutation.size());
+		boolean[] isRemaining = new boolean[instance.size()];
+		for(Integer city : taskPermutation){
+			isRemaining[city] = true;
+		}
+		for(int city : distances.getNeighbours(lastCity)){
+			if(isRemaining[city]){
+				order.add(city);
+				isRemaining[city] = false;
+			}
+		}
+		for(Integer city : taskPermutation){
+			if(isRemaining[city]){
+				order.add(city);
+			}
 		}
-		return children;
+		return order;
+	}
+
+	/* (non-Javadoc)
+	 * @see solution.Solution#createSearchState()
+	 */
+	@Override
+	public SearchState createSearchState() {
+		if(boundType == Constants.HELD_KARP_BOUND && penalties == null){
+			computeLowerBound();
+		}
+		return new EuclideanTSPSearchState(instance, getDistances(), boundType, pathFromRoot, pathCost, taskPermutation, penalties);
 	}
 
 	/* (non-Javadoc)
@@ -82,6 +194,14 @@ public class EuclideanTSPSolution extends Solution<Double>{
 		return lowerBound;
 	}
 
+	/* (non-Javadoc)
+	 * @see solution.Solution#getSize()
+	 */
+	@Override
+	public int getSize() {
+		return taskPermutation.size();
+	}
+
 	/* (non-Javadoc)
 	 * @see solution.Solution#getPathFromRoot()
 	 */
@@ -91,13 +211,67 @@ public class EuclideanTSPSolution extends Solution<Double>{
 	}
 
 	/** 
-	 * The lower bound is computed by adding up the euclidean distance between the nodes in the path from root.
+	 * With the path bound, the lower bound is the cost of the path from root plus the edge that closes the tour.
+	 * The path cost is carried over from the parent, so computing the bound takes constant time regardless of the depth of the node.
+	 * With the spanning tree bound, the minimum spanning tree over the remaining cities and the cheapest edges that connect it to both ends of the path are added to the path cost instead; see {@link OneTreeBound}.
+	 * The Held-Karp bound penalizes the same 1-tree. A node that has inherited penalties from its parent only refines them, otherwise they are tuned from scratch.
 	 * @see solution.Solution#computeLowerBound()
 	 */
 	@Override
 	public void computeLowerBound(){
-		lowerBound = calculateDistance(pathFromRoot);		
-		lowerBound += getEuclideanDistance(cities[pathFromRoot[pathFromRoot.length - 1]], cities[0]);		
+		if(boundType != Constants.PATH_BOUND){
+			computeLowerBound(new OneTreeBound(getDistances()), new int[taskPermutation.size()], Double.MAX_VALUE);
+		}
+		else{
+			computeLowerBound(null, null, Double.MAX_VALUE);
+		}
+	}
+	
+	/**
+	 * Compute lower bound using the given scratch space.
+	 *
+	 * @param oneTree the spanning tree bound calculator; it is not used with the path bound
+	 * @param remaining an array that can hold the remaining cities; it is not used with the path bound
+	 * @param upperBound the cost of the best known tour; it guides the tuning of the Held-Karp penalties
+	 */
+	private void computeLowerBound(OneTreeBound oneTree, int[] remaining, double upperBound){
+		int lastCity = pathFromRoot[pathFromRoot.length - 1];
+		if(boundType == Constants.PATH_BOUND){
+			lowerBound = pathCost + getDistances().get(lastCity, 0);
+			return;
+		}
+		int remainingCount = 0;
+		for(Integer city : taskPermutation){
+			remaining[remainingCount++] = city;
+		}
+		if(boundType == Constants.HELD_KARP_BOUND){
+			boolean inherited = penalties != null;
+			if(!inherited){
+				penalties = new float[instance.size()];
+			}
+			lowerBound = oneTree.computeHeldKarp(pathCost, lastCity, remaining, remainingCount, penalties, inherited, upperBound);
+		}
+		else{
+			lowerBound = oneTree.compute(pathCost, lastCity, remaining, remainingCount);
+		}
+	}
+	
+	/**
+	 * Sets the kind of lower bound computed for this node and its children.
+	 *
+	 * @param boundType one of {@link Constants#PATH_BOUND}, {@link Constants#SPANNING_TREE_BOUND} or {@link Constants#HELD_KARP_BOUND}
+	 */
+	public void setBoundType(int boundType){
+		this.boundType = boundType;
+	}
+	
+	/**
+	 * Sets the Held-Karp penalties that were tuned for this node.
+	 *
+	 * @param penalties the penalties indexed by city
+	 */
+	void setPenalties(float[] penalties){
+		this.penalties = penalties;
 	}
 	
 	/**
@@ -107,27 +281,95 @@ public class EuclideanTSPSolution extends Solution<Double>{
 	 * @return double
 	 */
 	private double calculateDistance(int[] cityPermutation){
+		DistanceMatrix distances = getDistances();
 		double distance = 0;
 		for(int j = 0; j < cityPermutation.length - 1; j++){
-			distance += getEuclideanDistance(this.cities[cityPermutation[j]], this.cities[cityPermutation[j + 1]]);				
+			distance += distances.get(cityPermutation[j], cityPermutation[j + 1]);				
 		}
 		return distance;
 	}
 	
 	/**
-	 * Calculate the Euclidean distance.
+	 * Gets the distances between the cities, looking them up on first use.
 	 *
-	 * @param pointA the starting point
-	 * @param pointB the ending point
-	 * @return distance the distance between the points
-	 */
-	private double getEuclideanDistance(double[] pointA, double[] pointB){		
-		double temp1 = Math.pow((pointA[0] - pointB[0]), 2);
-		double temp2 = Math.pow((pointA[1] - pointB[1]), 2);
-		double distance = Math.sqrt(temp1 + temp2);
-		return distance;
+	 * @return the distance matrix
+	 */
+	private DistanceMatrix getDistances(){
+		if(distances == null){
+			distances = instance.getDistances();
+		}
+		return distances;
 	}
 
+
+	/**
+	 * Writes the solution in a compact binary form, referring to the TSP instance by its job id if it has been put in the Space.
+	 * The remaining cities are written as varints.
+	 *
+	 * @param out the output stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		Varint.write(out, instance.getJobId());
+		if(instance.getJobId() == Constants.NO_JOB_ID){
+			out.writeObject(instance);
+		}
+		int[] remaining = null;
+		if(taskPermutation != null){
+			remaining = new int[taskPermutation.size()];
+			for(int i = 0; i < remaining.length; i++){
+				remaining[i] = taskPermutation.get(i);
+			}
+		}
+		Varint.writeArray(out, remaining);
+		out.writeDouble(pathCost);
+		out.writeByte(boundType);
+		// The length is written plus one, so that 0 stands for null
+		Varint.write(out, penalties == null ? 0 : penalties.length + 1);
+		if(penalties != null){
+			for(float penalty : penalties){
+				out.writeFloat(penalty);
+			}
+		}
+	}
+
+	/**
+	 * Reads the solution, looking the TSP instance up in the {@link ProblemRegistry} by its job id.
+	 *
+	 * @param in the input stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException the class not found exception
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		long jobId = Varint.readLong(in);
+		if(jobId == Constants.NO_JOB_ID){
+			instance = (TspInstance) in.readObject();
+		}
+		else{
+			instance = (TspInstance) ProblemRegistry.get(jobId);
+			if(instance == null){
+				throw new InvalidObjectException("The TSP instance of job " + jobId + " has not been received");
+			}
+		}
+		int[] remaining = Varint.readArray(in);
+		if(remaining != null){
+			taskPermutation = new ArrayList<Integer>(remaining.length);
+			for(int city : remaining){
+				taskPermutation.add(city);
+			}
+		}
+		pathCost = in.readDouble();
+		boundType = in.readByte();
+		int penaltyCount = Varint.readInt(in) - 1;
+		if(penaltyCount >= 0){
+			penalties = new float[penaltyCount];
+			for(int i = 0; i < penaltyCount; i++){
+				penalties[i] = in.readFloat();
+			}
+		}
+	}
 	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
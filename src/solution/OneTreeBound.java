@@ -0,0 +1,211 @@
+/*
+ * @author gautham
+ */
+package solution;
+
+/**
+ * The OneTreeBound computes a lower bound on the cost of completing a partial tour of a Traveling Salesman Problem.
+ * Any completion of the tour is a path from the last city of the partial tour, through all the remaining cities, back to city 0.
+ * Removing its first and last edges leaves a path that spans the remaining cities, which costs at least as much as their minimum spanning tree.
+ * Hence the cost of the partial tour, plus the minimum spanning tree over the remaining cities, plus the cheapest edges from both ends of the partial tour into the remaining cities is a lower bound.
+ * <p>
+ * The Held-Karp bound adds a penalty (Lagrange multiplier) to every remaining city, which is charged on every edge that touches the city.
+ * Every remaining city has exactly two tour edges, so the penalties add the same amount to every completion and the bound stays valid for any penalties.
+ * Subgradient optimization raises the penalties of the cities that have more than two edges in the tree and lowers the others, which pushes the tree towards a tour and tightens the bound.
+ * <p>
+ * An instance holds the scratch arrays needed by Prim's algorithm and must not be shared between threads.
+ */
+final class OneTreeBound {
+
+	/** The number of subgradient iterations for a node that does not inherit the penalties of its parent. */
+	static final int ROOT_ITERATIONS = 100;
+
+	/** The number of subgradient iterations for a node that starts from the penalties of its parent. */
+	static final int CHILD_ITERATIONS = 8;
+
+	/** The initial step size factor for a node that does not inherit the penalties of its parent. */
+	private static final double ROOT_STEP = 2;
+
+	/** The initial step size factor for a node that starts from the penalties of its parent. */
+	private static final double CHILD_STEP = 0.5;
+
+	/** The factor by which the step size shrinks after every iteration. */
+	private static final double STEP_DECAY = 0.95;
+
+	/** The distances between the cities. */
+	private final DistanceMatrix distances;
+
+	/** key[i] is the cheapest edge that connects the i-th remaining city to the tree built so far. */
+	private final double[] key;
+
+	/** parent[i] is the index of the remaining city through which the i-th remaining city joined the tree. */
+	private final int[] parent;
+
+	/** inTree[i] is true if the i-th remaining city has been added to the tree. */
+	private final boolean[] inTree;
+
+	/** degree[i] is the number of edges of the i-th remaining city in the last computed 1-tree. */
+	private final int[] degree;
+
+	/**
+	 * Instantiates a new 1-tree bound calculator.
+	 *
+	 * @param distances the distances between the cities
+	 */
+	OneTreeBound(DistanceMatrix distances){
+		this.distances = distances;
+		this.key = new double[distances.size()];
+		this.parent = new int[distances.size()];
+		this.inTree = new boolean[distances.size()];
+		this.degree = new int[distances.size()];
+	}
+
+	/**
+	 * Computes the lower bound of a partial tour.
+	 *
+	 * @param pathCost the cost of the partial tour, from city 0 to its last city
+	 * @param lastCity the last city of the partial tour
+	 * @param remaining the cities that are yet to be visited; only the first remainingCount entries are read and their order is not changed
+	 * @param remainingCount the number of cities that are yet to be visited
+	 * @return the lower bound
+	 */
+	double compute(double pathCost, int lastCity, int[] remaining, int remainingCount){
+		if(remainingCount == 0){
+			return pathCost + distances.get(lastCity, 0);
+		}
+		return pathCost + oneTreeCost(lastCity, remaining, remainingCount, null);
+	}
+
+	/**
+	 * Computes the Held-Karp lower bound of a partial tour by subgradient optimization of the penalties of the remaining cities.
+	 * The step size follows Polyak's rule, aiming at the upper bound if one is known and slightly above the current bound otherwise.
+	 * The iterations stop early once the bound reaches the upper bound, since the node is pruned anyway.
+	 *
+	 * @param pathCost the cost of the partial tour, from city 0 to its last city
+	 * @param lastCity the last city of the partial tour
+	 * @param remaining the cities that are yet to be visited; only the first remainingCount entries are read and their order is not changed
+	 * @param remainingCount the number of cities that are yet to be visited
+	 * @param penalties the penalties indexed by city, which are the starting point of the optimization and are updated in place
+	 * @param inherited true if the penalties were inherited from the parent, false if they start from zero
+	 * @param upperBound the cost of the best known tour, or Double.MAX_VALUE if there is none
+	 * @return the lower bound
+	 */
+	double computeHeldKarp(double pathCost, int lastCity, int[] remaining, int remainingCount, float[] penalties, boolean inherited, double upperBound){
+		if(remainingCount <= 1){ // The bound is the cost of the only completion
+			return compute(pathCost, lastCity, remaining, remainingCount);
+		}
+		int iterations = inherited ? CHILD_ITERATIONS : ROOT_ITERATIONS;
+		double step = inherited ? CHILD_STEP : ROOT_STEP;
+		double bound = -Double.MAX_VALUE;
+		for(int iteration = 0; ; iteration++){
+			double penaltySum = 0;
+			for(int i = 0; i < remainingCount; i++){
+				penaltySum += penalties[remaining[i]];
+			}
+			double value = pathCost + oneTreeCost(lastCity, remaining, remainingCount, penalties) - 2 * penaltySum;
+			bound = Math.max(bound, value);
+			if(iteration == iterations || bound >= upperBound){
+				break;
+			}
+
+			int norm = 0;
+			for(int i = 0; i < remainingCount; i++){
+				int gradient = degree[i] - 2;
+				norm += gradient * gradient;
+			}
+			if(norm == 0){ // The 1-tree is a tour, hence the bound is exact
+				break;
+			}
+			double target = upperBound < Double.MAX_VALUE ? upperBound : value * 1.05;
+			double stepSize = step * (target - value) / norm;
+			for(int i = 0; i < remainingCount; i++){
+				penalties[remaining[i]] += (float) (stepSize * (degree[i] - 2));
+			}
+			step *= STEP_DECAY;
+		}
+		return bound;
+	}
+
+	/**
+	 * Computes the cost of the cheapest 1-tree that completes a partial tour: the minimum spanning tree over the remaining cities plus the cheapest edge from each end of the partial tour.
+	 * The degree of every remaining city in that 1-tree is left in the degree array.
+	 *
+	 * @param lastCity the last city of the partial tour
+	 * @param cities the remaining cities
+	 * @param count the number of remaining cities
+	 * @param penalties the penalties indexed by city, or null if there are none
+	 * @return the cost of the 1-tree, including the penalties
+	 */
+	private double oneTreeCost(int lastCity, int[] cities, int count, float[] penalties){
+		double fromLast = Double.MAX_VALUE;
+		double toHome = Double.MAX_VALUE;
+		int fromLastIndex = 0;
+		int toHomeIndex = 0;
+		for(int i = 0; i < count; i++){
+			int city = cities[i];
+			double penalty = penalties == null ? 0 : penalties[city];
+			double distance = distances.get(lastCity, city) + penalty;
+			if(distance < fromLast){
+				fromLast = distance;
+				fromLastIndex = i;
+			}
+			distance = distances.get(city, 0) + penalty;
+			if(distance < toHome){
+				toHome = distance;
+				toHomeIndex = i;
+			}
+			degree[i] = 0;
+		}
+		degree[fromLastIndex]++;
+		degree[toHomeIndex]++;
+		return spanningTreeCost(cities, count, penalties) + fromLast + toHome;
+	}
+
+	/**
+	 * Computes the cost of the minimum spanning tree over the given cities using Prim's algorithm and adds the tree edges to the degree array.
+	 *
+	 * @param cities the cities
+	 * @param count the number of cities
+	 * @param penalties the penalties indexed by city, or null if there are none
+	 * @return the cost of the minimum spanning tree
+	 */
+	private double spanningTreeCost(int[] cities, int count, float[] penalties){
+		double cost = 0;
+		// Start the tree from the first city
+		int current = 0;
+		inTree[0] = true;
+		for(int i = 1; i < count; i++){
+			key[i] = Double.MAX_VALUE;
+			inTree[i] = false;
+		}
+		for(int added = 1; added < count; added++){
+			int currentCity = cities[current];
+			double currentPenalty = penalties == null ? 0 : penalties[currentCity];
+			int next = -1;
+			double nextKey = Double.MAX_VALUE;
+			for(int i = 1; i < count; i++){
+				if(inTree[i]){
+					continue;
+				}
+				double distance = distances.get(currentCity, cities[i]);
+				if(penalties != null){
+					distance += currentPenalty + penalties[cities[i]];
+				}
+				if(distance < key[i]){
+					key[i] = distance;
+					parent[i] = current;
+				}
+				if(key[i] < nextKey){
+					nextKey = key[i];
+					next = i;
+				}
+			}
+			cost += nextKey;
+			inTree[next] = true;
+			degree[next]++;
+			degree[parent[next]]++;
+			current = next;
+		}
+		return cost;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * @author gautham
+ */
+package solution;
+
+/**
+ * The SearchState represents a single mutable node that walks the search tree below a partial solution in place.
+ * Instead of creating a new Solution object for every node, the search descends into a branch by modifying the state and ascends by undoing that modification.
+ * The application programmers may extend this class to let the Branch and Bound tasks explore a sub-tree without allocating any objects per node.
+ */
+public abstract class SearchState {
+
+	/**
+	 * Generates the branches of the current node.
+	 * It must be called once every time a node is entered, before any of its branches are descended into.
+	 *
+	 * @return the number of branches of the current node
+	 */
+	public abstract int expand();
+
+	/**
+	 * Descends into the given branch of the current node, making the child the current node.
+	 *
+	 * @param branch the index of the branch, between 0 and the value returned by {@link #expand()}
+	 * @return the lower bound of the child
+	 */
+	public abstract double descend(int branch);
+
+	/**
+	 * Undoes the last descend, making the parent the current node again.
+	 */
+	public abstract void ascend();
+
+	/**
+	 * Lets the state know the cost of the best known solution, which some bounds use to stop refining a node that will be pruned anyway.
+	 *
+	 * @param upperBound the upper bound
+	 */
+	public void setUpperBound(double upperBound) {
+	}
+
+	/**
+	 * Checks if the current node represents a complete solution.
+	 *
+	 * @return true, if it is complete
+	 */
+	public abstract boolean isComplete();
+
+	/**
+	 * Gets the depth of the current node relative to the node from which the state was created.
+	 *
+	 * @return the depth
+	 */
+	public abstract int getDepth();
+
+	/**
+	 * Gets the maximum depth that the state can descend to, relative to the node from which the state was created.
+	 *
+	 * @return the maximum depth
+	 */
+	public abstract int getMaxDepth();
+
+	/**
+	 * Creates a Solution object that corresponds to the current node.
+	 * This is the only method of the state that allocates; the search calls it only when a better complete solution is found.
+	 *
+	 * @return the solution
+	 */
+	public abstract Solution<?> toSolution();
+}
@@ -3,10 +3,14 @@
  */
 package solution;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Queue;
 
 import shared.Shared;
+import utils.Varint;
 
 /**
  * The Solution object represents a partial feasible solution. 
@@ -20,10 +24,10 @@ public abstract class Solution<T> implements Serializable{
 	protected static final long serialVersionUID = 1L;
 	
 	/** The lower bound. */
-	protected double lowerBound;
+	protected transient double lowerBound;
 	
 	/** The path from root to the current node in the search tree. */
-	protected int[] pathFromRoot;
+	protected transient int[] pathFromRoot;
 	
 	/**
 	 * Checks if the path from root includes all the nodes that represent the given optmization problem.
@@ -33,7 +37,7 @@ public abstract class Solution<T> implements Serializable{
 	public abstract boolean isComplete();
 	
 	/**
-	 * Gets the children of the current node in the search tree.
+	 * Gets the children of the current node in the search tree, the most promising child first.
 	 *
 	 * @param shared the shared object that has the upper bound
 	 * @return the children
@@ -52,6 +56,14 @@ public abstract class Solution<T> implements Serializable{
 	 */
 	protected abstract void computeLowerBound();
 	
+	/**
+	 * Gets the size of the sub-problem that is yet to be solved below this node, e.g. the number of cities that are yet to be visited.
+	 * It is used to estimate how long exploring the sub-tree takes.
+	 *
+	 * @return the size
+	 */
+	public abstract int getSize();
+	
 	/**
 	 * Gets the path to this node from root.
 	 *
@@ -59,6 +71,15 @@ public abstract class Solution<T> implements Serializable{
 	 */
 	public abstract int[] getPathFromRoot();
 		
+	/**
+	 * Creates a mutable search state positioned at this node, so that the sub-tree can be explored in place without creating a Solution object for every node.
+	 *
+	 * @return the search state, or null if the solution does not support searching in place
+	 */
+	public SearchState createSearchState() {
+		return null;
+	}
+	
 	/**
 	 * Checks if the current solution is better than the given solution. For instance, the comparison can be between the lowerbound values of two feasible solutions.
 	 *
@@ -67,4 +88,28 @@ public abstract class Solution<T> implements Serializable{
 	 */
 	public abstract boolean compareTo(Solution<?> solution);
 	
+	/**
+	 * Writes the lower bound and the path, whose nodes are written as varints.
+	 *
+	 * @param out the output stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeDouble(lowerBound);
+		Varint.writeArray(out, pathFromRoot);
+	}
+
+	/**
+	 * Reads the lower bound and the path.
+	 *
+	 * @param in the input stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException the class not found exception
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		lowerBound = in.readDouble();
+		pathFromRoot = Varint.readArray(in);
+	}
 }
@@ -0,0 +1,61 @@
+/*
+ * @author gautham
+ */
+package solution;
+
+import api.Problem;
+
+/**
+ * The TspInstance holds the cities of a Traveling Salesman Problem (TSP), which every solution of the job refers to.
+ * Only the coordinates are sent; every JVM builds the distance matrix from them on first use, which is cheaper than sending a matrix of the square of the number of cities.
+ */
+public class TspInstance extends Problem {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The cities in 2D Euclidean plane that are part of the TSP. */
+	private final double[][] cities;
+
+	/** The distances between the cities; it is built in every JVM. */
+	private transient volatile DistanceMatrix distances;
+
+	/**
+	 * Instantiates a new TSP instance.
+	 *
+	 * @param cities the cities in 2D Euclidean plane; cities[i][0] is the x-coordinate of city i and cities[i][1] its y-coordinate
+	 */
+	public TspInstance(double[][] cities){
+		this.cities = cities;
+	}
+
+	/**
+	 * Gets the cities.
+	 *
+	 * @return the cities
+	 */
+	public double[][] getCities() {
+		return cities;
+	}
+
+	/**
+	 * Gets the number of cities.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return cities.length;
+	}
+
+	/**
+	 * Gets the distances between the cities, building them on first use.
+	 *
+	 * @return the distance matrix
+	 */
+	public DistanceMatrix getDistances() {
+		if(distances == null){
+			distances = DistanceMatrix.getInstance(cities);
+		}
+		return distances;
+	}
+}
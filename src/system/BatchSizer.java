@@ -0,0 +1,68 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import utils.Constants;
+
+/**
+ * Decides how many tasks the Space sends to a computer in one remote call.
+ * Every call costs a round trip and the serialization of its arguments, which the Space estimates as the time that the call took minus the time that the computer spent on the batch.
+ * The batch is made large enough for its tasks to run {@link Constants#BATCH_LATENCY_RATIO} times longer than that cost, so that long tasks are sent one at a time and tiny tasks in large batches.
+ */
+public class BatchSizer {
+
+	/** The weight of a new measurement in the moving averages. */
+	private static final double SMOOTHING = 0.2;
+
+	/** The average cost of a remote call, in nanoseconds. */
+	private double latency;
+
+	/** The average time that a worker of the computer spends on a task, in nanoseconds. */
+	private double taskTime;
+	
+	/** The number of tasks that the computer executes concurrently. */
+	private final int workerCount;
+
+	/**
+	 * Instantiates a new batch sizer for a computer.
+	 *
+	 * @param workerCount the number of tasks that the computer executes concurrently
+	 */
+	public BatchSizer(int workerCount){
+		this.workerCount = workerCount;
+	}
+
+	/**
+	 * Records a remote call that executed a batch.
+	 *
+	 * @param batchSize the number of tasks in the batch
+	 * @param callTime the time that the call took, as seen by the Space, in nanoseconds
+	 * @param computeTime the elapsed time that the computer spent on the batch, in nanoseconds
+	 */
+	public synchronized void record(int batchSize, long callTime, long computeTime){
+		double measuredLatency = Math.max(callTime - computeTime, 0);
+		// The tasks of the batch run concurrently, so the time that the computer spent on the batch was spent on as many tasks at once as it has workers
+		double measuredTaskTime = (double) computeTime * Math.min(batchSize, workerCount) / batchSize;
+		if(taskTime == 0){
+			latency = measuredLatency;
+			taskTime = Math.max(measuredTaskTime, 1);
+			return;
+		}
+		latency += SMOOTHING * (measuredLatency - latency);
+		taskTime = Math.max(taskTime + SMOOTHING * (measuredTaskTime - taskTime), 1);
+	}
+
+	/**
+	 * Gets the number of tasks to send in the next call.
+	 *
+	 * @return the batch size, between 1 and {@link Constants#MAX_BATCH_SIZE}
+	 */
+	public synchronized int getBatchSize(){
+		if(taskTime == 0){ // Nothing has been measured yet
+			return 1;
+		}
+		double batchSize = Math.ceil(Constants.BATCH_LATENCY_RATIO * latency / taskTime);
+		return (int) Math.max(1, Math.min(batchSize, Constants.MAX_BATCH_SIZE));
+	}
+}
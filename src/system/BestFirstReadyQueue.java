@@ -0,0 +1,118 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import api.Task;
+
+/**
+ * A ready queue that hands out the task with the smallest lower bound first, so that the cluster works on the most promising sub-trees first and tightens the upper bound sooner.
+ * The tasks that have no lower bound, such as successor tasks, are taken before all the others.
+ * Among the tasks that have the same lower bound, the newest one is taken first, as a depth-first search would.
+ * The lower bound of a task is read once, when it is added, since it does not change while the task waits.
+ */
+public class BestFirstReadyQueue extends ReadyQueue {
+
+	/** The tasks, ordered by lower bound. */
+	private final PriorityBlockingQueue<Entry> tasks = new PriorityBlockingQueue<Entry>();
+
+	/** The number of tasks added so far, which orders the tasks that have the same lower bound. */
+	private final AtomicLong sequence = new AtomicLong();
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.ReadyQueue#add(api.Task)
+	 */
+	@Override
+	public void add(Task<?> task){
+		tasks.add(new Entry(task, sequence.incrementAndGet()));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * The task keeps its place by lower bound, since that is what decides when it is taken.
+	 *
+	 * @see system.ReadyQueue#putBack(api.Task)
+	 */
+	@Override
+	public void putBack(Task<?> task){
+		add(task);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.ReadyQueue#poll()
+	 */
+	@Override
+	public Task<?> poll(){
+		Entry entry = tasks.poll();
+		return entry == null ? null : entry.task;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.ReadyQueue#poll(long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public Task<?> poll(long timeout, TimeUnit unit) throws InterruptedException {
+		Entry entry = tasks.poll(timeout, unit);
+		return entry == null ? null : entry.task;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.ReadyQueue#size()
+	 */
+	@Override
+	public int size(){
+		return tasks.size();
+	}
+
+	/**
+	 * A task in the queue, along with the key that orders it.
+	 */
+	private static class Entry implements Comparable<Entry> {
+
+		/** The task. */
+		private final Task<?> task;
+
+		/** The lower bound of the task. */
+		private final double lowerBound;
+
+		/** The number of tasks that were added before this one, plus one. */
+		private final long sequence;
+
+		/**
+		 * Instantiates a new entry.
+		 *
+		 * @param task the task
+		 * @param sequence the number of tasks that were added before it, plus one
+		 */
+		private Entry(Task<?> task, long sequence){
+			this.task = task;
+			this.lowerBound = task.getLowerBound();
+			this.sequence = sequence;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		public int compareTo(Entry other){
+			int order = Double.compare(lowerBound, other.lowerBound);
+			if(order != 0){
+				return order;
+			}
+			return Long.compare(other.sequence, sequence);
+		}
+	}
+}
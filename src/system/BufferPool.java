@@ -0,0 +1,65 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps direct byte buffers of a fixed size for reuse, since allocating a direct buffer is expensive and its memory is only released by the garbage collector.
+ */
+public class BufferPool {
+
+	/** The capacity of the buffers, in bytes. */
+	private final int bufferSize;
+
+	/** The largest number of buffers that the pool keeps. */
+	private final int maxPooled;
+
+	/** The buffers that are free. */
+	private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+	/** The number of buffers that are free. */
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	/**
+	 * Instantiates a new buffer pool.
+	 *
+	 * @param bufferSize the capacity of the buffers, in bytes
+	 * @param maxPooled the largest number of buffers that the pool keeps
+	 */
+	public BufferPool(int bufferSize, int maxPooled){
+		this.bufferSize = bufferSize;
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * Takes a free buffer, allocating one if there is none.
+	 *
+	 * @return the buffer, cleared
+	 */
+	public ByteBuffer acquire(){
+		ByteBuffer buffer = buffers.poll();
+		if(buffer == null){
+			return ByteBuffer.allocateDirect(bufferSize);
+		}
+		pooled.decrementAndGet();
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Gives a buffer back to the pool, unless the pool is full.
+	 *
+	 * @param buffer the buffer, which the caller must not use any more
+	 */
+	public void release(ByteBuffer buffer){
+		if(pooled.incrementAndGet() > maxPooled){
+			pooled.decrementAndGet();
+			return;
+		}
+		buffers.offer(buffer);
+	}
+}
@@ -5,9 +5,11 @@ package system;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 import shared.Shared;
 
+import api.Problem;
 import api.Task;
 
 /**
@@ -30,20 +32,34 @@ public interface Computer extends Remote{
 	public <T> void execute(Task<T> t) throws RemoteException;
 	
 	/**
-	 * Stop the compute instance.
+	 * Executes a batch of tasks in a single remote call, so that the cost of the call is shared by all of them.
+	 * The tasks run concurrently on the workers of the computer, and the method returns once all of them are done.
+	 * The Space's current shared object comes along with the batch, so that the tasks are not pruned with an older upper bound than the Space knows.
 	 *
+	 * @param tasks the tasks
+	 * @param shared the Space's shared object, or null if the computer has already been sent it
+	 * @return the elapsed time, in nanoseconds, that the computer spent on the batch, while its tasks ran concurrently
 	 * @throws RemoteException the remote exception
 	 */
-	public void exit() throws RemoteException;
+	public long executeBatch(List<Task<?>> tasks, Shared<?> shared) throws RemoteException;
 	
-
 	/**
-	 * Sets the remote reference to space (Space Proxy).
+	 * Gives back some of the child tasks that the computer kept to execute itself, so that the Space can assign them to idle computers.
+	 * The tasks that were created first are given back, since they are the highest in the tree and have the most work below them.
+	 * Before the method returns, the Space has received the splits that created the tasks.
 	 *
-	 * @param space the new space
-	 * @throws Exception the exception
+	 * @param max the largest number of tasks to give back
+	 * @return the tasks, which may be empty
+	 * @throws RemoteException the remote exception
 	 */
-	public void setSpace(Computer2Space space) throws Exception;
+	public List<Task<?>> releaseTasks(int max) throws RemoteException;
+	
+	/**
+	 * Stop the compute instance.
+	 *
+	 * @throws RemoteException the remote exception
+	 */
+	public void exit() throws RemoteException;
 	
 	/**
 	 * Sets the computer id.
@@ -61,6 +77,24 @@ public interface Computer extends Remote{
 	 */
 	public int getComputerId() throws RemoteException;
 	
+	/**
+	 * Gets the number of tasks that the computer can execute concurrently.
+	 * The Space dispatches up to that many tasks to the computer at the same time.
+	 *
+	 * @return the worker count
+	 * @throws RemoteException the remote exception
+	 */
+	public int getWorkerCount() throws RemoteException;
+	
+	/**
+	 * Receives the problem of a job, which the tasks of that job refer to by the job id.
+	 * The Space sends it before any of the tasks of the job.
+	 *
+	 * @param problem the problem
+	 * @throws RemoteException the remote exception
+	 */
+	public void putProblem(Problem problem) throws RemoteException;
+	
 	/**
 	 * Sets the shared object.
 	 * The task calls the computer’s setShared method when it finds a minimal solution that is less than the computer's current upper bound.
@@ -46,6 +46,18 @@ public interface Computer2Space extends Remote{
 	 */
 	<T> void storeResult(Task<T> task) throws RemoteException;    
 	
+	/**
+	 * Stores a batch of results and split tasks that a computer buffered, in the order in which they were buffered.
+	 * The child tasks that the computer keeps are not made ready; the Space keeps track of them until their outcome is stored.
+	 * The Space replies with its current shared object, so that the computer catches up with an upper bound that it may have missed.
+	 *
+	 * @param updates the updates
+	 * @param computerId the id of the computer that sent the updates
+	 * @return the Space's shared object, or null if the computer has already been sent it
+	 * @throws RemoteException the remote exception
+	 */
+	Shared<?> storeBatch(List<SpaceUpdate<?>> updates, int computerId) throws RemoteException;
+	
 	
 	/**
 	 * Sets the shared object in Space.
@@ -6,10 +6,20 @@ package system;
 import java.rmi.Naming;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
 
+import shared.Incumbent;
 import shared.Shared;
 import utils.Constants;
+import utils.TaskIdGenerator;
+import api.Problem;
+import api.ProblemRegistry;
 import api.Space;
 import api.Task;
 
@@ -17,6 +27,12 @@ import api.Task;
  * This class enables different tasks to be executed by the Compute Space using its remote reference (proxy)
  * These tasks are run using the task's implementation of the execute method and the results are returned to the Compute Space.
  * Each task can either be executed right away (atomic) or be decomposed into multiple tasks. In the earlier case, the result is stored in the space while in the latter case, the subtasks are stored.
+ * The tasks run on a fork/join pool of worker threads, so one computer can use all the cores of its host; all the workers share one shared object and one incumbent.
+ * A task that forks parts of its own work lets the idle workers steal them, which balances the load within the computer without going through the Space.
+ * The Space sends more tasks than there are workers; the extra ones wait in the queue of the pool, which serves as the local prefetch queue, so a worker that finishes a task picks up the next one right away.
+ * The results and the sub-tasks are buffered and sent to the Space in batches: when enough of them have been buffered, when the local queue runs empty, periodically, and before an execute call returns, so that the Space never considers a task done before its outcome has been stored.
+ * The computer keeps the child tasks of its splits, up to {@link Constants#LOCAL_TASKS_PER_WORKER} per worker, and executes them depth-first instead of waiting for the Space to send them back. 
+ * The Space only receives their ids, along with the other buffered calls; it can ask for some of them back when other computers run out of tasks, and it executes the task that was split again if the computer fails.
  */
 public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 	
@@ -28,36 +44,177 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 	
 	
 	/** The shared object. */
-	private Shared shared;
+	private volatile Shared shared;
+	
+	/** The value of the shared object, which the tasks read without locking. */
+	private final Incumbent incumbent = new Incumbent();
 	
 	/** The computer id. */
 	private int computerId;
 	
+	/** Sends the newer shared objects to the Space, on a thread of its own. */
+	private final SharedBroadcaster broadcaster = new SharedBroadcaster("Shared broadcaster", 1);
+	
+	/** The channel to the Space. */
+	private final SharedBroadcaster.Channel spaceChannel = broadcaster.createChannel(new SharedBroadcaster.Receiver(){
+		public void receive(Shared<?> shared) throws RemoteException {
+			space.setShared(shared, computerId);
+		}
+	});
+	
+	/** The number of tasks that can be executed concurrently. */
+	private final int workerCount;
+	
+	/** The worker threads that execute the tasks and the parts that they fork. */
+	private final ForkJoinPool workers;
+	
+	/** The calls to the Space that have been buffered and not yet sent. */
+	private final List<SpaceUpdate<?>> pendingUpdates = new ArrayList<SpaceUpdate<?>>();
+	
+	/** Held while the buffered calls are sent, so that they reach the Space in the order in which they were buffered. */
+	private final Object flushLock = new Object();
+	
+	/** The child tasks that the computer keeps to execute itself, the most recently created first. */
+	private final BlockingDeque<Task<?>> localTasks = new LinkedBlockingDeque<Task<?>>();
+	
+	/** Decides whether the child tasks that the computer keeps are split or executed as a whole, as the Space does for the tasks that it sends. */
+	private final GranularityController granularity = new GranularityController(Constants.TARGET_TASK_RUN_TIME);
+	
+	/** Executes the child task that was created last, if the Space has not asked for it back. */
+	private final Runnable localRunner = new Runnable(){
+		public void run(){
+			Task<?> t = localTasks.pollFirst();
+			if(t == null){
+				return;
+			}
+			if(t.getTaskType() == Constants.CHILD_TASK && t.getSize() >= 0){
+				t.setAtomic(granularity.isAtomic(t.getSize(), t.getLevel(), localTasks.size(), workerCount));
+			}
+			try {
+				executeTask(t);
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+		}
+	};
+	
 	/**
-	 * Instantiates a new implementation object for the Computer Interface.
+	 * Instantiates a new implementation object for the Computer Interface that has a worker for every available processor.
 	 *
 	 * @throws RemoteException the remote exception
 	 */
 	public ComputerImpl() throws RemoteException{		
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Instantiates a new implementation object for the Computer Interface.
+	 *
+	 * @param workerCount the number of tasks that can be executed concurrently
+	 * @throws RemoteException the remote exception
+	 */
+	public ComputerImpl(int workerCount) throws RemoteException{
+		if(workerCount < 1){
+			throw new IllegalArgumentException("The worker count must be positive: " + workerCount);
+		}
+		this.workerCount = workerCount;
+		this.workers = new ForkJoinPool(workerCount);
+		Thread flusher = new Thread(){
+			public void run(){
+				while(true){
+					try {
+						Thread.sleep(Constants.FLUSH_INTERVAL);
+					} catch (InterruptedException e) {
+						return;
+					}
+					flushUpdates();
+				}
+			}
+		};
+		flusher.setDaemon(true);
+		flusher.start();
 	}
 
 	/**
 	 * Different tasks can be submitted to this method.
-	 * The function checks to see if the task can be executed.
-	 * If the task is atomic or if it's a successor task, then it's executed and the intermediate results are stored in Space. 
-	 * Otherwise, the task is split into multiple subtasks and are put in Space.
+	 * The task is run on one of the workers, and the method returns once it is done.
 	 * 
 	 * @param <T> the generic type
 	 * @param t the Task object
-	 * @return Result the return value of the Task object's execute method
 	 * @throws RemoteException the remote exception
 	 */	
 	@Override
 	public <T> void execute(final Task<T> t) throws RemoteException {
+		await(submit(t), t);
+		flushUpdates();
+	}
+	
+	/* (non-Javadoc)
+	 * @see system.Computer#executeBatch(java.util.List, shared.Shared)
+	 */
+	@Override
+	public long executeBatch(List<Task<?>> tasks, Shared<?> shared) throws RemoteException {
+		long startTime = System.nanoTime();
+		if(shared != null){
+			setShared(shared, false);
+		}
+		List<Future<?>> futures = new ArrayList<Future<?>>(tasks.size());
+		for(Task<?> t : tasks){
+			futures.add(submit(t));
+		}
+		for(int i = 0; i < futures.size(); i++){
+			await(futures.get(i), tasks.get(i));
+		}
+		flushUpdates();
+		return System.nanoTime() - startTime;
+	}
+	
+	/**
+	 * Submits the task to the workers.
+	 *
+	 * @param t the task
+	 * @return the future that completes once the task has been executed
+	 */
+	private Future<?> submit(final Task<?> t) {
+		return workers.submit(new Runnable(){
+			public void run(){
+				executeTask(t);
+			}
+		});
+	}
+	
+	/**
+	 * Waits for a submitted task to be executed.
+	 *
+	 * @param future the future of the task
+	 * @param t the task
+	 * @throws RemoteException if the task could not be executed
+	 */
+	private void await(Future<?> future, Task<?> t) throws RemoteException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RemoteException("Interrupted while executing task " + t, e);
+		} catch (ExecutionException e) {
+			throw new RemoteException("Failed to execute task " + t, e.getCause());
+		}
+	}
+	
+	/**
+	 * The function checks to see if the task can be executed.
+	 * If the task is atomic or if it's a successor task, then it's executed and the intermediate results are stored in Space. 
+	 * Otherwise, the task is split into multiple subtasks and are put in Space.
+	 *
+	 * @param <T> the generic type
+	 * @param t the Task object
+	 */
+	private <T> void executeTask(Task<T> t) {
 		//System.out.println("Task: " + t);
 		// If it's a regular task and if the base condition is not set (the task can be split into sub-tasks)
 		
 		t.setComputer(this);
+		t.setIncumbent(incumbent);
 		//System.out.println("Computer: Elapsed time for task " + (result.getTaskId() + 1) + ": " + elapsedTime + " ms");
 		
 		long elapsedTime = 0;
@@ -68,50 +225,150 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 			long endTime = System.nanoTime();
 			elapsedTime = endTime - startTime;
 			t.setTaskRunTime(elapsedTime);
-			try {
-				space.storeResult(t);
-			} catch (RemoteException e) {
-				e.printStackTrace();
+			List<Task<T>> unfinishedTasks = t.getUnfinishedTasks();
+			if(unfinishedTasks != null){ // The task left part of its work unfinished; put that part in Space as if the task had been split, so that other computers can take it
+				storeTasks(t, unfinishedTasks, false);
+				return;
 			}
+			if(t.getTaskType() == Constants.CHILD_TASK){
+				granularity.record(t.getSize(), elapsedTime);
+			}
+			store(SpaceUpdate.result(t));
 		}
 		else{
 			// Split the task into 'n' sub-tasks and 1 successor task and put
 			// them all in Space.
 			long startTime = System.nanoTime();
 			List<Task<T>> tasks = t.splitTask();
-			
-			
-			Task<T> successorTask = t.createSuccessorTask();
-			Task[] inputList = null;
-			if(tasks != null && tasks.size() > 0){ // if all the children have NOT been pruned
-				inputList = new Task[tasks.size()];
-				successorTask.setJoinCounter(inputList.length);
-			}
-			
-			successorTask.setInputList(inputList);
-			// Successor's successor should be the current task's successor.
-			successorTask.setSuccessorTaskId((Object) t.getSuccessorTaskId());
-			
 			long endTime = System.nanoTime();
 			elapsedTime = endTime - startTime;
 			t.setTaskRunTime(elapsedTime);
+			storeTasks(t, tasks, true);
+		} 
+			
+	}
+	
+	/**
+	 * Creates the successor task of the given sub-tasks and puts them all in Space.
+	 * If the computer has room for them, it keeps the sub-tasks to execute them itself.
+	 *
+	 * @param <T> the generic type
+	 * @param t the task that the sub-tasks were created from
+	 * @param tasks the sub-tasks
+	 * @param mayKeep whether the computer may keep the sub-tasks
+	 */
+	private <T> void storeTasks(Task<T> t, List<Task<T>> tasks, boolean mayKeep) {
+		Task<T> successorTask = t.createSuccessorTask();
+		Task[] inputList = null;
+		if(tasks != null && tasks.size() > 0){ // if all the children have NOT been pruned
+			inputList = new Task[tasks.size()];
+			successorTask.setJoinCounter(inputList.length);
+		}
+		
+		successorTask.setInputList(inputList);
+		// Successor's successor should be the current task's successor.
+		successorTask.setSuccessorTaskId(t.getSuccessorTaskId());
+		
+		boolean keep = mayKeep && inputList != null && localTasks.size() + tasks.size() <= workerCount * Constants.LOCAL_TASKS_PER_WORKER;
+		if(!keep){
+			store(SpaceUpdate.tasks(t, tasks, successorTask));
+			return;
+		}
+		for(Task<T> child : tasks){
+			child.setSuccessorTaskId(successorTask.getTaskId());
+		}
+		// The split is buffered before any outcome of the children, so it reaches the Space first; the children keep the workers busy, so it is only sent once the buffer is full
+		if(buffer(SpaceUpdate.keptTasks(t, tasks, successorTask))){
+			flushUpdates();
+		}
+		// The children are listed most promising first; add them in reverse so that the first one is executed first
+		for(int i = tasks.size() - 1; i >= 0; i--){
+			localTasks.addFirst(tasks.get(i));
+		}
+		for(int i = 0; i < tasks.size(); i++){
+			workers.submit(localRunner);
+		}
+	}
+	
+	/**
+	 * Buffers a call to the Space. The buffered calls are sent right away if there are enough of them, or if no task is waiting in the local queue.
+	 *
+	 * @param update the update
+	 */
+	private void store(SpaceUpdate<?> update) {
+		// Once the local queues are empty, no other update is likely to be buffered soon
+		if(buffer(update) || (!workers.hasQueuedSubmissions() && localTasks.isEmpty())){
+			flushUpdates();
+		}
+	}
+	
+	/**
+	 * Buffers a call to the Space without sending it.
+	 *
+	 * @param update the update
+	 * @return true, if enough calls have been buffered to be sent
+	 */
+	private boolean buffer(SpaceUpdate<?> update) {
+		synchronized(pendingUpdates){
+			pendingUpdates.add(update);
+			return pendingUpdates.size() >= Constants.FLUSH_BATCH_SIZE;
+		}
+	}
+	
+	/**
+	 * Sends the buffered calls to the Space in a single remote call.
+	 * It returns only once the calls that had been buffered by the time it was invoked have reached the Space.
+	 */
+	private void flushUpdates() {
+		synchronized(flushLock){
+			List<SpaceUpdate<?>> updates;
+			synchronized(pendingUpdates){
+				if(pendingUpdates.isEmpty()){
+					return;
+				}
+				updates = new ArrayList<SpaceUpdate<?>>(pendingUpdates);
+				pendingUpdates.clear();
+			}
 			try {
-				space.storeTasks(t, tasks, successorTask);
+				Shared<?> shared = space.storeBatch(updates, computerId);
+				if(shared != null){
+					setShared(shared, false);
+				}
 			} catch (RemoteException e) {
 				e.printStackTrace();
 			}
-		} 
-			
+		}
 	}
 	
 	
 
+	/* (non-Javadoc)
+	 * @see system.Computer#releaseTasks(int)
+	 */
+	@Override
+	public List<Task<?>> releaseTasks(int max) throws RemoteException {
+		List<Task<?>> released = new ArrayList<Task<?>>();
+		while(released.size() < max){
+			Task<?> t = localTasks.pollLast();
+			if(t == null){
+				break;
+			}
+			released.add(t);
+		}
+		// The splits that created the tasks were buffered before the tasks were added; the Space must have them before it receives the tasks
+		if(!released.isEmpty()){
+			flushUpdates();
+		}
+		return released;
+	}
+
 	/* (non-Javadoc)
 	 * @see system.Computer#stop()
 	 */
 	@Override
 	public void exit() throws RemoteException {
 		System.out.println("Received command to stop.");
+		System.out.println("Upper bound propagation: " + broadcaster.getMetrics());
 		System.exit(0);		
 	}
 
@@ -123,21 +380,36 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 	 */
 	public static void main(String[] args) throws Exception {		
 		String spaceDomainName = args[0];
+		// The number of workers is optional; it defaults to the number of available processors
+		int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		// The computer connects over RMI, or over NIO if "nio" is given
+		boolean nio = args.length > 2 && args[2].equalsIgnoreCase("nio");
 		
-		String spaceURL = "//" + spaceDomainName + "/" + Space.SERVICE_NAME;		
-		Computer2Space remoteSpace = (Computer2Space) Naming.lookup(spaceURL);
-		
-		Computer computer = new ComputerImpl();
-		remoteSpace.register(computer);
+		ComputerImpl computer = new ComputerImpl(workerCount);
+		Computer2Space remoteSpace;
+		if(nio){
+			// The Space calls the computer over the connection, so the computer is not exported
+			UnicastRemoteObject.unexportObject(computer, true);
+			remoteSpace = NioSpaceStub.connect(spaceDomainName, Constants.NIO_PORT, computer);
+		}
+		else{
+			String spaceURL = "//" + spaceDomainName + "/" + Space.SERVICE_NAME;		
+			remoteSpace = (Computer2Space) Naming.lookup(spaceURL);
+		}
+		// The space must be set before registering, since the Space starts dispatching tasks as soon as the computer is registered
 		computer.setSpace(remoteSpace);
-		System.out.println("Computer ready.");
+		remoteSpace.register(computer);
+		System.out.println("Computer ready with " + workerCount + " workers.");
 	}
 	
 
-	/* (non-Javadoc)
-	 * @see system.Computer#setSpace(system.Computer2Space)
+	/**
+	 * Sets the remote reference to space (Space Proxy).
+	 * The computer is given the Space before it registers, by whoever started it; the Space never calls this method, so it is not part of the {@link Computer} interface.
+	 *
+	 * @param space the new space
+	 * @throws Exception the exception
 	 */
-	@Override
 	public void setSpace(Computer2Space space) throws Exception {
 		this.space = space;		
 	}
@@ -150,20 +422,10 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 		if(this.shared == null || proposedShared.isNewerThan(this.shared)){
 			//System.out.println("New cost received.");
 			this.shared = proposedShared;
+			incumbent.offer(proposedShared);
 			if(canPropagate){
-				Thread thread = new Thread(){
-					public void run(){
-						//System.out.println("Propagating to Space.");
-						
-						try {
-							space.setShared(proposedShared, computerId);
-						} catch (RemoteException e) {
-							e.printStackTrace();							
-						}						
-					}
-				};
-				thread.start();
-				
+				//System.out.println("Propagating to Space.");
+				spaceChannel.offer(proposedShared);
 			}
 		}
 		else{
@@ -179,12 +441,30 @@ public final class ComputerImpl extends UnicastRemoteObject implements Computer{
 		return this.shared;
 	}
 
+	/* (non-Javadoc)
+	 * @see system.Computer#putProblem(api.Problem)
+	 */
+	@Override
+	public void putProblem(Problem problem) throws RemoteException {
+		ProblemRegistry.register(problem);
+	}
+
+	/* (non-Javadoc)
+	 * @see system.Computer#getWorkerCount()
+	 */
+	@Override
+	public int getWorkerCount() throws RemoteException {
+		return this.workerCount;
+	}
+
 	/* (non-Javadoc)
 	 * @see system.Computer#setComputerId(int)
 	 */
 	@Override
 	public void setComputerId(int computerId) throws RemoteException {
-		this.computerId = computerId;		
+		this.computerId = computerId;
+		// The tasks that this computer creates carry its id
+		TaskIdGenerator.setNodeId(computerId);
 	}
 
 	/* (non-Javadoc)
@@ -0,0 +1,105 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+import api.Task;
+
+/**
+ * A ready queue that hands out the tasks newest first or oldest first.
+ * Newest first makes the cluster search depth-first, which keeps the number of ready tasks small; oldest first makes it search breadth-first.
+ */
+public class DequeReadyQueue extends ReadyQueue {
+
+	/** The tasks; they are always taken from the head. */
+	private final BlockingDeque<Task<?>> tasks = new LinkedBlockingDeque<Task<?>>();
+
+	/** Whether the newest task is taken first. */
+	private final boolean lifo;
+
+	/**
+	 * Instantiates a new deque ready queue.
+	 *
+	 * @param lifo true if the newest task is taken first, false if the oldest one is
+	 */
+	public DequeReadyQueue(boolean lifo){
+		this.lifo = lifo;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.ReadyQueue#add(api.Task)
+	 */
+	@Override
+	public void add(Task<?> task){
+		if(lifo){
+			tasks.addFirst(task);
+		}
+		else{
+			tasks.addLast(task);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * Newest first, the tasks are added in reverse so that the most promising one ends up at the head.
+	 *
+	 * @see system.ReadyQueue#addAll(java.util.List)
+	 */
+	@Override
+	public void addAll(List<? extends Task<?>> tasks){
+		if(!lifo){
+			super.addAll(tasks);
+			return;
+		}
+		for(int i = tasks.size() - 1; i >= 0; i--){
+			this.tasks.addFirst(tasks.get(i));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.ReadyQueue#putBack(api.Task)
+	 */
+	@Override
+	public void putBack(Task<?> task){
+		tasks.addFirst(task);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.ReadyQueue#poll()
+	 */
+	@Override
+	public Task<?> poll(){
+		return tasks.pollFirst();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.ReadyQueue#poll(long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public Task<?> poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return tasks.pollFirst(timeout, unit);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.ReadyQueue#size()
+	 */
+	@Override
+	public int size(){
+		return tasks.size();
+	}
+}
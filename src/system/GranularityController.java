@@ -0,0 +1,126 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import utils.Constants;
+
+/**
+ * Decides whether a task is executed as a whole (atomic) or split into sub-tasks, so that the tasks run for about a target duration.
+ * The computers measure how long the atomic tasks run; the controller keeps an exponential moving average of those run times for every task size.
+ * The run time of a size that has not been measured yet is extrapolated from the nearest size that has been, using the growth between adjacent sizes.
+ * While the ready queue holds fewer tasks than there are workers, the tasks are split more eagerly so that no worker stays idle.
+ */
+public class GranularityController {
+
+	/** The weight of a new measurement in the moving average. */
+	private static final double SMOOTHING = 0.2;
+
+	/** The factor by which the target duration is divided while the workers are starved of tasks. */
+	private static final int STARVED_DIVISOR = 4;
+
+	/** The duration that the tasks should run for, in nanoseconds. */
+	private final long targetRunTime;
+
+	/** The average run time of the atomic tasks indexed by size, in nanoseconds; 0 if the size has not been measured. */
+	private double[] runTimes = new double[0];
+
+	/**
+	 * Instantiates a new granularity controller.
+	 *
+	 * @param targetRunTime the duration that the tasks should run for, in milliseconds
+	 */
+	public GranularityController(long targetRunTime){
+		this.targetRunTime = targetRunTime * 1000000;
+	}
+
+	/**
+	 * Forgets all the measurements, typically when a new job starts.
+	 */
+	public synchronized void reset(){
+		runTimes = new double[0];
+	}
+
+	/**
+	 * Records the run time of a task that was executed as a whole.
+	 *
+	 * @param size the size of the task
+	 * @param runTime the run time, in nanoseconds
+	 */
+	public synchronized void record(int size, long runTime){
+		if(size < 0){
+			return;
+		}
+		if(size >= runTimes.length){
+			double[] grown = new double[size + 1];
+			System.arraycopy(runTimes, 0, grown, 0, runTimes.length);
+			runTimes = grown;
+		}
+		// A measured run time of 0 would read as unmeasured
+		double measured = Math.max(runTime, 1);
+		runTimes[size] = runTimes[size] == 0 ? measured : runTimes[size] + SMOOTHING * (measured - runTimes[size]);
+	}
+
+	/**
+	 * Decides whether the task is executed as a whole.
+	 *
+	 * @param size the size of the task
+	 * @param level the level of the task in the tree; it is only used until a run time has been measured
+	 * @param readyTasks the number of tasks in the ready queue
+	 * @param workerCount the number of workers of all the registered computers
+	 * @return true, if the task is executed as a whole
+	 */
+	public synchronized boolean isAtomic(int size, int level, int readyTasks, int workerCount){
+		if(size <= Constants.MIN_SPLIT_SIZE){
+			return true;
+		}
+		double estimate = estimateRunTime(size);
+		if(estimate == 0){ // Nothing has been measured yet
+			return level >= Constants.BB_BASE_LEVEL;
+		}
+		double threshold = readyTasks < workerCount ? targetRunTime / STARVED_DIVISOR : targetRunTime;
+		return estimate <= threshold;
+	}
+
+	/**
+	 * Estimates how long a task of the given size runs.
+	 *
+	 * @param size the size
+	 * @return the estimated run time, in nanoseconds, or 0 if nothing has been measured yet
+	 */
+	private double estimateRunTime(int size){
+		if(size < runTimes.length && runTimes[size] != 0){
+			return runTimes[size];
+		}
+		// The nearest measured size, preferring the smaller one
+		int nearest = -1;
+		for(int distance = 1; nearest < 0 && (size - distance >= 0 || size + distance < runTimes.length); distance++){
+			if(size - distance >= 0 && size - distance < runTimes.length && runTimes[size - distance] != 0){
+				nearest = size - distance;
+			}
+			else if(size + distance < runTimes.length && runTimes[size + distance] != 0){
+				nearest = size + distance;
+			}
+		}
+		if(nearest < 0){
+			return 0;
+		}
+		return runTimes[nearest] * Math.pow(getGrowth(nearest), size - nearest);
+	}
+
+	/**
+	 * Gets the factor by which the run time grows from the given size to the next, as measured if both sizes have been.
+	 *
+	 * @param size the size
+	 * @return the growth
+	 */
+	private double getGrowth(int size){
+		if(size + 1 < runTimes.length && runTimes[size + 1] != 0){
+			return Math.max(1, runTimes[size + 1] / runTimes[size]);
+		}
+		if(size >= 1 && runTimes[size - 1] != 0){
+			return Math.max(1, runTimes[size] / runTimes[size - 1]);
+		}
+		return Constants.TASK_RUN_TIME_GROWTH;
+	}
+}
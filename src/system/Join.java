@@ -0,0 +1,127 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import utils.Constants;
+import api.Task;
+
+/**
+ * Keeps track of the arguments that a waiting successor task is missing, without a lock, as computers store the outcomes of its child tasks concurrently.
+ * Every argument is owned by the task that must deliver it: first the child task, then, if the child is split, the successor task of its own children.
+ * An outcome is only accepted from the current owner of its argument, so an outcome that is stored twice, for instance by a computer that failed after sending it, is ignored.
+ * The counter of missing arguments is atomic, so exactly one outcome releases the successor task.
+ *
+ * @param <T> the generic type
+ */
+public class Join<T> {
+
+	/** Marks an argument that has been delivered; no task has this id. */
+	private static final long DELIVERED = Constants.NO_TASK_ID;
+
+	/** The successor task. */
+	private final Task<T> successorTask;
+
+	/** The number of arguments that are still missing. */
+	private final AtomicInteger joinCounter;
+
+	/** The id of the task that owns every argument, or {@link #DELIVERED}. */
+	private final AtomicLongArray owners;
+
+	/**
+	 * Instantiates a new join.
+	 *
+	 * @param successorTask the successor task
+	 * @param childTasks the child tasks, which own the arguments given by their argument numbers
+	 */
+	public Join(Task<T> successorTask, List<Task<T>> childTasks){
+		this.successorTask = successorTask;
+		// The join counter of the task itself is left as the computer set it
+		this.joinCounter = new AtomicInteger(childTasks.size());
+		this.owners = new AtomicLongArray(successorTask.getInputList().length);
+		for(Task<T> t : childTasks){
+			owners.set(t.getArgNo(), t.getTaskId());
+		}
+	}
+
+	/**
+	 * Instantiates a new join whose child tasks are known by their ids only.
+	 *
+	 * @param successorTask the successor task
+	 * @param childTaskIds the ids of the child tasks, by argument number
+	 */
+	public Join(Task<T> successorTask, long[] childTaskIds){
+		this.successorTask = successorTask;
+		this.joinCounter = new AtomicInteger(childTaskIds.length);
+		this.owners = new AtomicLongArray(childTaskIds);
+	}
+
+	/**
+	 * Gets the successor task.
+	 *
+	 * @return the successor task
+	 */
+	public Task<T> getSuccessorTask() {
+		return successorTask;
+	}
+
+	/**
+	 * Hands an argument over from a task that has been split to the successor task of its children.
+	 *
+	 * @param parentTask the task that has been split
+	 * @param successorTask the successor task of its children
+	 * @return true, if the parent task owned the argument; false, if the split has already been stored
+	 */
+	public boolean handOver(Task<T> parentTask, Task<T> successorTask){
+		int argNo = parentTask.getArgNo();
+		if(!transfer(argNo, parentTask.getTaskId(), successorTask.getTaskId())){
+			return false;
+		}
+		successorTask.setArgNo(argNo);
+		this.successorTask.getInputList()[argNo] = successorTask;
+		return true;
+	}
+
+	/**
+	 * Gives an argument back from the successor task of the children of a split to the task that was split, so that the task can be executed again.
+	 *
+	 * @param parentTask the task that has been split
+	 * @param successorTaskId the id of the successor task of its children
+	 * @return true, if the successor task owned the argument
+	 */
+	public boolean takeBack(Task<T> parentTask, long successorTaskId){
+		return transfer(parentTask.getArgNo(), successorTaskId, parentTask.getTaskId());
+	}
+
+	/**
+	 * Delivers the argument of a task that has been executed.
+	 *
+	 * @param task the task
+	 * @return true, if it was the last missing argument, so that the successor task is ready; false otherwise, or if the outcome has already been stored
+	 */
+	public boolean deliver(Task<T> task){
+		int argNo = task.getArgNo();
+		if(!transfer(argNo, task.getTaskId(), DELIVERED)){
+			return false;
+		}
+		successorTask.getInputList()[argNo] = task;
+		// The decrement publishes the input to the thread that releases the successor
+		return joinCounter.decrementAndGet() == 0;
+	}
+
+	/**
+	 * Transfers the ownership of an argument, provided that it is owned by the given task.
+	 *
+	 * @param argNo the argument number
+	 * @param ownerId the id of the task that must own the argument
+	 * @param newOwner the new owner
+	 * @return true, if the ownership was transferred
+	 */
+	private boolean transfer(int argNo, long ownerId, long newOwner){
+		return owners.compareAndSet(argNo, ownerId, newOwner);
+	}
+}
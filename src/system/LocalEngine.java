@@ -0,0 +1,63 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.rmi.server.UnicastRemoteObject;
+
+import api.Space;
+
+/**
+ * Runs a Space and its computers in the same JVM as the client, so that a job can be solved on a single machine without an RMI registry or any other process.
+ * None of them is exported: the client calls the Space directly, and the Space and the computers call each other directly.
+ * The tasks, the results and the shared objects are therefore passed by reference instead of being serialized, which makes the engine the baseline for measuring the cost of distribution.
+ * Every computer executes the tasks on the given number of workers; the Space schedules them as it does for remote computers, so an engine of several computers measures the scheduling of a cluster without its transport.
+ * The engines of a JVM can run side by side, since the Spaces of a JVM hand out distinct job ids.
+ * Like a standalone Space, an engine keeps the upper bound of the job that it has solved, so every job needs an engine of its own.
+ */
+public class LocalEngine {
+
+	/**
+	 * Instantiates a new local engine.
+	 */
+	private LocalEngine(){
+
+	}
+
+	/**
+	 * Starts a Space and a computer in this JVM.
+	 * Their threads are daemon threads, so they do not keep the JVM alive once the client is done.
+	 *
+	 * @param workerCount the number of tasks that the computer executes concurrently
+	 * @param targetRunTime the duration that the tasks should run for, in milliseconds
+	 * @return the Space, to which the client puts its job
+	 * @throws Exception the exception
+	 */
+	public static Space start(int workerCount, long targetRunTime) throws Exception {
+		return start(1, workerCount, targetRunTime);
+	}
+
+	/**
+	 * Starts a Space and a number of computers in this JVM.
+	 * Their threads are daemon threads, so they do not keep the JVM alive once the client is done.
+	 *
+	 * @param computerCount the number of computers
+	 * @param workerCount the number of tasks that every computer executes concurrently
+	 * @param targetRunTime the duration that the tasks should run for, in milliseconds
+	 * @return the Space, to which the client puts its job
+	 * @throws Exception the exception
+	 */
+	public static Space start(int computerCount, int workerCount, long targetRunTime) throws Exception {
+		SpaceImpl space = new SpaceImpl(targetRunTime);
+		// The constructors export the objects for RMI, which the local calls do not need
+		UnicastRemoteObject.unexportObject(space, true);
+		for(int i = 0; i < computerCount; i++){
+			ComputerImpl computer = new ComputerImpl(workerCount);
+			UnicastRemoteObject.unexportObject(computer, true);
+			// The space must be set before registering, since the Space starts dispatching tasks as soon as the computer is registered
+			computer.setSpace(space);
+			space.register(computer);
+		}
+		return space;
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.MarshalException;
+import java.rmi.RemoteException;
+import java.util.List;
+
+import shared.Shared;
+
+import api.Problem;
+import api.Task;
+
+/**
+ * The Space's end of a {@link NioConnection} to a computer: it calls the computer's operations over the connection, and performs the calls that the computer makes on the Space.
+ * The Space registers it in place of a remote reference to the computer, so the rest of the Space does not depend on the transport.
+ */
+public class NioComputerStub implements Computer, NioConnection.RequestHandler {
+
+	/** The operation that executes a task. */
+	static final byte EXECUTE = 1;
+
+	/** The operation that executes a batch of tasks. */
+	static final byte EXECUTE_BATCH = 2;
+
+	/** The operation that takes back the child tasks that a computer keeps. */
+	static final byte RELEASE_TASKS = 3;
+
+	/** The operation that stops a computer. */
+	static final byte EXIT = 4;
+
+	/** The operation that sets the computer id. */
+	static final byte SET_COMPUTER_ID = 5;
+
+	/** The operation that gets the computer id. */
+	static final byte GET_COMPUTER_ID = 6;
+
+	/** The operation that gets the number of workers. */
+	static final byte GET_WORKER_COUNT = 7;
+
+	/** The operation that sends a problem. */
+	static final byte PUT_PROBLEM = 8;
+
+	/** The operation that sends a shared object. */
+	static final byte SET_SHARED = 9;
+
+	/** The operation that gets the shared object. */
+	static final byte GET_SHARED = 10;
+
+	/** The connection to the computer. */
+	private final NioConnection connection;
+
+	/** The space. */
+	private final SpaceImpl space;
+
+	/**
+	 * Instantiates a new stub over a connection.
+	 *
+	 * @param connection the connection to the computer
+	 * @param space the space
+	 */
+	private NioComputerStub(NioConnection connection, SpaceImpl space){
+		this.connection = connection;
+		this.space = space;
+	}
+
+	/**
+	 * Accepts the connections of the computers on a port, on an event loop of its own.
+	 *
+	 * @param space the space that the computers register with
+	 * @param port the port
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void listen(final SpaceImpl space, int port) throws IOException {
+		// The RMI registry keeps the Space running
+		final NioEventLoop loop = new NioEventLoop(true);
+		final ServerSocketChannel serverChannel = ServerSocketChannel.open();
+		serverChannel.socket().setReuseAddress(true);
+		serverChannel.socket().bind(new InetSocketAddress(port));
+		serverChannel.configureBlocking(false);
+		serverChannel.register(loop.getSelector(), SelectionKey.OP_ACCEPT, new NioEventLoop.Handler(){
+			public void handle(SelectionKey key){
+				try {
+					SocketChannel channel;
+					while((channel = serverChannel.accept()) != null){
+						NioConnection connection = new NioConnection(channel, loop);
+						connection.start(new NioComputerStub(connection, space));
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+
+			public void handleFailure(RuntimeException cause){
+				// The connections that have been accepted are not affected
+				cause.printStackTrace();
+			}
+		});
+		loop.start();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.NioConnection.RequestHandler#handle(byte, java.lang.Object[])
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Object handle(byte operation, Object[] args) throws Exception {
+		switch(operation){
+		case NioSpaceStub.REGISTER:
+			space.register(this);
+			return null;
+		case NioSpaceStub.STORE_TASKS:
+			space.storeTasks((Task) args[0], (List) args[1], (Task) args[2]);
+			return null;
+		case NioSpaceStub.STORE_RESULT:
+			space.storeResult((Task) args[0]);
+			return null;
+		case NioSpaceStub.STORE_BATCH:
+			return space.storeBatch((List<SpaceUpdate<?>>) args[0], (Integer) args[1]);
+		case NioSpaceStub.SET_SHARED:
+			space.setShared((Shared<?>) args[0], (Integer) args[1]);
+			return null;
+		default:
+			// The other side runs a different version; the caller gets the error instead of a reply
+			throw new MarshalException("Unknown operation " + operation);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.NioConnection.RequestHandler#closed(java.io.IOException)
+	 */
+	public void closed(IOException cause){
+		// The computer may be gone while no call to it is in progress, with the child tasks that it kept
+		space.computerFailed(this);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer#execute(api.Task)
+	 */
+	@Override
+	public <T> void execute(Task<T> t) throws RemoteException {
+		connection.call(EXECUTE, t);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer#executeBatch(java.util.List, shared.Shared)
+	 */
+	@Override
+	public long executeBatch(List<Task<?>> tasks, Shared<?> shared) throws RemoteException {
+		return (Long) connection.call(EXECUTE_BATCH, tasks, shared);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer#releaseTasks(int)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public List<Task<?>> releaseTasks(int max) throws RemoteException {
+		return (List<Task<?>>) connection.call(RELEASE_TASKS, max);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer#exit()
+	 */
+	@Override
+	public void exit() throws RemoteException {
+		connection.call(EXIT);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer#setComputerId(int)
+	 */
+	@Override
+	public void setComputerId(int computerId) throws RemoteException {
+		connection.call(SET_COMPUTER_ID, computerId);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer#getComputerId()
+	 */
+	@Override
+	public int getComputerId() throws RemoteException {
+		return (Integer) connection.call(GET_COMPUTER_ID);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer#getWorkerCount()
+	 */
+	@Override
+	public int getWorkerCount() throws RemoteException {
+		return (Integer) connection.call(GET_WORKER_COUNT);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer#putProblem(api.Problem)
+	 */
+	@Override
+	public void putProblem(Problem problem) throws RemoteException {
+		connection.call(PUT_PROBLEM, problem);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer#setShared(shared.Shared, boolean)
+	 */
+	@Override
+	public void setShared(Shared<?> shared, boolean canPropagate) throws RemoteException {
+		connection.call(SET_SHARED, shared, canPropagate);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer#getShared()
+	 */
+	@SuppressWarnings("rawtypes")
+	@Override
+	public Shared getShared() throws RemoteException {
+		return (Shared) connection.call(GET_SHARED);
+	}
+}
@@ -0,0 +1,929 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.rmi.ConnectException;
+import java.rmi.MarshalException;
+import java.rmi.RemoteException;
+import java.rmi.ServerError;
+import java.rmi.ServerException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import utils.ConcurrentLongMap;
+import utils.Constants;
+import utils.Varint;
+
+/**
+ * A connection between the Space and a computer over a non-blocking socket channel, through which either side calls the other, as an alternative to RMI.
+ * The calls are sent as frames: the length of the frame, the id of the call, the kind of frame, the operation and the serialized arguments, or the serialized return value or exception.
+ * Any number of calls can be in progress at the same time in both directions; the replies are matched to the calls by id, so a long call does not hold up the others.
+ * The payloads of each direction are written by one object stream that lasts as long as the connection, reset between frames, and the classes are described only the first time that they are sent; after that, a class takes a byte or two instead of its name and fields.
+ * The frames are therefore written in the order in which they are encoded, and read in the order in which they arrive, on the event loop.
+ * A frame is written from pooled direct buffers by the thread that sends it, unless earlier frames wait for the channel, in which case the event loop writes it once the channel can take more.
+ * The replies complete their calls on the event loop, and the incoming requests are handled on a pool of threads, since they may block for as long as a batch of tasks runs.
+ * When the connection is closed, the calls in progress fail with a {@link ConnectException}, as remote calls do when the other side fails, and the handler is told, so that it can give up on the other side even if no call is in progress.
+ * A call that takes longer than {@link Constants#NIO_CALL_TIMEOUT} pings the other side, and closes the connection if the ping is not answered in time either, so a call never waits for a side that has hung or whose host has gone.
+ */
+public class NioConnection implements NioEventLoop.Handler {
+
+	/** The kind of a frame that calls an operation. */
+	private static final byte REQUEST = 0;
+
+	/** The kind of a frame that returns the value of a call. */
+	private static final byte REPLY = 1;
+
+	/** The kind of a frame that returns the exception that a call threw. */
+	private static final byte ERROR = 2;
+
+	/** The flag of the kind of a frame whose payload starts a new object stream, as the first one does. */
+	private static final byte NEW_STREAM = 0x10;
+
+	/** The operation that checks that the other side still answers; the connection answers it itself. */
+	private static final byte PING = 0;
+
+	/** The number of bytes of a frame before the payload, including its length. */
+	private static final int HEADER_SIZE = 4 + 8 + 1 + 1;
+
+	/** The buffers that the frames are written from and read into. */
+	private static final BufferPool buffers = new BufferPool(Constants.NIO_BUFFER_SIZE, Constants.NIO_POOLED_BUFFERS);
+
+	/** The threads that handle the incoming frames. */
+	private static final ExecutorService handlers = Executors.newCachedThreadPool(new ThreadFactory(){
+		public Thread newThread(Runnable runnable){
+			Thread thread = new Thread(runnable, "NIO handler");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/** The channel. */
+	private final SocketChannel channel;
+
+	/** The event loop that performs the I/O of the channel. */
+	private final NioEventLoop loop;
+
+	/** Handles the incoming calls. */
+	private RequestHandler handler;
+
+	/** The selection key of the channel; it is only used by the event loop. */
+	private SelectionKey key;
+
+	/** The calls in progress, by call id. */
+	private final ConcurrentLongMap<PendingCall> pendingCalls = new ConcurrentLongMap<PendingCall>();
+
+	/** The id of the last call. */
+	private final AtomicLong callId = new AtomicLong();
+
+	/** The buffers waiting to be written, in order; it is guarded by the write lock. */
+	private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<ByteBuffer>();
+
+	/** Held while a frame is encoded, queued and written, so that the frames are written in the order in which they are encoded. */
+	private final Object writeLock = new Object();
+
+	/** The pooled buffers that the frame being encoded is written into; it is guarded by the write lock. */
+	private final FrameOutputStream frameOut = new FrameOutputStream();
+
+	/** Writes the header of the frame being encoded; it is guarded by the write lock. */
+	private final DataOutputStream frameHeader = new DataOutputStream(frameOut);
+
+	/** Writes the payloads of the frames, or null if the next frame starts a new stream; it is guarded by the write lock. */
+	private CompactObjectOutputStream objectOut;
+
+	/** The classes that have been described to the other side; it is guarded by the write lock. */
+	private final ClassTable writeClasses = new ClassTable();
+
+	/** Writes the queued buffers; it runs on the event loop. */
+	private final Runnable flusher = new Runnable(){
+		public void run(){
+			flush();
+		}
+	};
+
+	/** The buffer that the channel is read into; it is only used by the event loop. */
+	private final ByteBuffer readBuffer = buffers.acquire();
+
+	/** The frame that is being read, without its length, or null if the length has not been read yet. */
+	private byte[] frame;
+
+	/** The number of bytes of the frame that have been read. */
+	private int framePosition;
+
+	/** The payload of the frame being decoded; it is only used by the event loop. */
+	private final FrameInputStream frameIn = new FrameInputStream();
+
+	/** Reads the payloads of the frames, or null until the first frame has arrived; it is only used by the event loop. */
+	private CompactObjectInputStream objectIn;
+
+	/** The classes that the other side has described; it is only used by the event loop. */
+	private final ClassTable readClasses = new ClassTable();
+
+	/** Set once the connection is closed. */
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	/**
+	 * Instantiates a new connection over a connected channel.
+	 *
+	 * @param channel the channel
+	 * @param loop the event loop that performs its I/O
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public NioConnection(SocketChannel channel, NioEventLoop loop) throws IOException {
+		this.channel = channel;
+		this.loop = loop;
+		channel.configureBlocking(false);
+		// The frames are small and every call waits for its reply
+		channel.socket().setTcpNoDelay(true);
+	}
+
+	/**
+	 * Starts reading the incoming frames.
+	 *
+	 * @param handler handles the incoming calls
+	 */
+	public void start(RequestHandler handler){
+		this.handler = handler;
+		loop.execute(new Runnable(){
+			public void run(){
+				try {
+					key = channel.register(loop.getSelector(), SelectionKey.OP_READ, NioConnection.this);
+				} catch (IOException e) {
+					close(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Calls an operation on the other side, and waits for it to return.
+	 *
+	 * @param operation the operation
+	 * @param args the arguments
+	 * @return the return value
+	 * @throws RemoteException if the call failed, or threw an exception on the other side
+	 */
+	public Object call(byte operation, Object... args) throws RemoteException {
+		PendingCall call = send(operation, args);
+		// A call may take as long as the tasks that it runs, so it only gives up once the other side stops answering
+		while(!call.await(Constants.NIO_CALL_TIMEOUT)){
+			if(!send(PING).await(Constants.NIO_CALL_TIMEOUT)){
+				close(new IOException("The other side has not answered for " + Constants.NIO_CALL_TIMEOUT + " ms"));
+			}
+		}
+		return call.get();
+	}
+
+	/**
+	 * Sends a call to the other side.
+	 *
+	 * @param operation the operation
+	 * @param args the arguments
+	 * @return the call, which waits for its reply
+	 * @throws RemoteException if the call could not be sent
+	 */
+	private PendingCall send(byte operation, Object... args) throws RemoteException {
+		long id = callId.incrementAndGet();
+		PendingCall call = new PendingCall();
+		pendingCalls.put(id, call);
+		// A connection that is closed from now on fails the call
+		if(closed.get()){
+			pendingCalls.remove(id);
+			throw new ConnectException("The connection is closed");
+		}
+		try {
+			send(id, REQUEST, operation, args);
+		} catch (RemoteException e) {
+			pendingCalls.remove(id);
+			throw e;
+		} catch (IOException e) {
+			pendingCalls.remove(id);
+			throw new MarshalException("The call could not be sent", e);
+		}
+		return call;
+	}
+
+	/**
+	 * Closes the connection, failing the calls in progress, and tells the handler.
+	 *
+	 * @param cause the reason why the connection is closed
+	 */
+	public void close(IOException cause){
+		if(!closed.compareAndSet(false, true)){
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		// The event loop gives the buffers back once it has stopped using them
+		loop.execute(new Runnable(){
+			public void run(){
+				releaseBuffers();
+			}
+		});
+		for(PendingCall call : pendingCalls.removeAll()){
+			call.fail(new ConnectException("The connection was closed", cause));
+		}
+		if(handler != null){
+			handler.closed(cause);
+		}
+	}
+
+	/**
+	 * Gives the read buffer and the buffers that have not been written back to the pool, once the connection is closed.
+	 * It runs on the event loop, so it does not release the read buffer while a read is in progress.
+	 */
+	private void releaseBuffers(){
+		buffers.release(readBuffer);
+		// Held so that no frame is queued after the queue has been emptied
+		synchronized(writeLock){
+			ByteBuffer buffer;
+			while((buffer = writeQueue.poll()) != null){
+				buffers.release(buffer);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.NioEventLoop.Handler#handle(java.nio.channels.SelectionKey)
+	 */
+	public void handle(SelectionKey key){
+		if(closed.get()){
+			return;
+		}
+		if(key.isValid() && key.isReadable()){
+			read();
+		}
+		if(key.isValid() && key.isWritable()){
+			flush();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.NioEventLoop.Handler#handleFailure(java.lang.RuntimeException)
+	 */
+	public void handleFailure(RuntimeException cause){
+		close(new IOException("Handling the connection failed", cause));
+	}
+
+	/**
+	 * Reads the bytes that are available, and hands over the frames that are complete.
+	 */
+	private void read(){
+		try {
+			if(channel.read(readBuffer) < 0){
+				close(new EOFException("The other side closed the connection"));
+				return;
+			}
+		} catch (IOException e) {
+			close(e);
+			return;
+		}
+		readBuffer.flip();
+		while(readBuffer.hasRemaining() && !closed.get()){
+			if(frame == null){
+				if(readBuffer.remaining() < 4){
+					break;
+				}
+				int length = readBuffer.getInt();
+				// A corrupt length must not make the node allocate an arbitrary amount of memory
+				if(length < HEADER_SIZE - 4 || length > Constants.NIO_MAX_FRAME_SIZE){
+					close(new IOException("Invalid frame length " + length));
+					return;
+				}
+				frame = new byte[length];
+				framePosition = 0;
+			}
+			int count = Math.min(readBuffer.remaining(), frame.length - framePosition);
+			readBuffer.get(frame, framePosition, count);
+			framePosition += count;
+			if(framePosition == frame.length){
+				byte[] received = frame;
+				frame = null;
+				receive(received);
+			}
+		}
+		readBuffer.compact();
+	}
+
+	/**
+	 * Writes the queued buffers, as far as the channel takes them without blocking.
+	 */
+	private void flush(){
+		if(key == null || !key.isValid() || closed.get()){
+			return;
+		}
+		try {
+			synchronized(writeLock){
+				// If the channel is full, carry on once it can take more
+				key.interestOps(write() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+		} catch (CancelledKeyException e) {
+			// The connection has been closed by another thread since the key was checked
+		} catch (IOException e) {
+			close(e);
+		}
+	}
+
+	/**
+	 * Decodes a frame that has been read, in the order in which the frames arrive, since a frame may refer to the classes that the earlier ones described.
+	 * A reply completes its call right away, and a request is handled on the pool.
+	 * A frame that cannot be decoded is answered as before with a {@link MarshalException} if the whole of it was read; otherwise the frames after it cannot be decoded either, so the connection is closed.
+	 *
+	 * @param frame the frame, without its length
+	 */
+	private void receive(byte[] frame){
+		ByteBuffer header = ByteBuffer.wrap(frame);
+		final long id = header.getLong();
+		byte flags = header.get();
+		final byte operation = header.get();
+		byte kind = (byte) (flags & ~NEW_STREAM);
+		Object payload;
+		try {
+			frameIn.set(frame, HEADER_SIZE - 4);
+			if((flags & NEW_STREAM) != 0){
+				objectIn = new CompactObjectInputStream(frameIn, readClasses);
+			}
+			else if(objectIn == null){
+				throw new StreamCorruptedException("The first frame does not start a stream");
+			}
+			payload = objectIn.readObject();
+			if(frameIn.available() > 0){
+				throw new StreamCorruptedException(frameIn.available() + " bytes of the frame were not read");
+			}
+		} catch (Exception e) {
+			if(frameIn.available() > 0 || objectIn == null){
+				close(new IOException("A frame could not be read", e));
+				return;
+			}
+			MarshalException error = new MarshalException("The frame could not be read", e);
+			if(kind == REQUEST){
+				reply(id, ERROR, operation, error);
+				return;
+			}
+			payload = error;
+			kind = ERROR;
+		}
+		if(kind == REQUEST && operation == PING){
+			reply(id, REPLY, operation, null);
+			return;
+		}
+		if(kind == REQUEST){
+			final Object[] args = (Object[]) payload;
+			handlers.execute(new Runnable(){
+				public void run(){
+					Object result;
+					byte replyKind = REPLY;
+					try {
+						result = handler.handle(operation, args);
+					} catch (Throwable t) {
+						result = t;
+						replyKind = ERROR;
+					}
+					reply(id, replyKind, operation, result);
+				}
+			});
+			return;
+		}
+		PendingCall call = pendingCalls.remove(id);
+		if(call == null){
+			return;
+		}
+		if(kind == ERROR){
+			call.fail((Throwable) payload);
+		}
+		else{
+			call.complete(payload);
+		}
+	}
+
+	/**
+	 * Sends the reply to a call, or the reason why it cannot be sent.
+	 *
+	 * @param id the call id
+	 * @param kind the kind of reply
+	 * @param operation the operation
+	 * @param payload the return value or the exception
+	 */
+	private void reply(long id, byte kind, byte operation, Object payload){
+		try {
+			send(id, kind, operation, payload);
+		} catch (IOException e) {
+			try {
+				send(id, ERROR, operation, new MarshalException("The reply could not be sent: " + e));
+			} catch (IOException ignored) {
+				close(e);
+			}
+		}
+	}
+
+	/**
+	 * Encodes a frame into pooled buffers and writes it, or queues it for the event loop if the channel cannot take it all.
+	 *
+	 * @param id the call id
+	 * @param kind the kind of frame
+	 * @param operation the operation
+	 * @param payload the payload
+	 * @throws IOException if the payload cannot be serialized, or the connection is closed or fails
+	 */
+	private void send(long id, byte kind, byte operation, Object payload) throws IOException {
+		synchronized(writeLock){
+			// The buffers of a closed connection are given back to the pool
+			if(closed.get()){
+				throw new ConnectException("The connection is closed");
+			}
+			int classCount = writeClasses.size();
+			boolean encoded = false;
+			frameOut.begin();
+			try {
+				// The length is filled in once the payload has been written
+				frameHeader.writeInt(0);
+				frameHeader.writeLong(id);
+				frameHeader.writeByte(objectOut == null ? kind | NEW_STREAM : kind);
+				frameHeader.writeByte(operation);
+				if(objectOut == null){
+					objectOut = new CompactObjectOutputStream(frameOut, writeClasses);
+				}
+				else{
+					// The objects of the earlier frames must not be referred to, since the other side has let go of them
+					objectOut.reset();
+				}
+				objectOut.writeObject(payload);
+				objectOut.flush();
+				encoded = true;
+			} finally {
+				if(!encoded){
+					// The stream may hold part of the frame, and the other side never learns of the classes that the frame described
+					frameOut.release();
+					objectOut = null;
+					writeClasses.truncate(classCount);
+				}
+			}
+			boolean waiting = !writeQueue.isEmpty();
+			writeQueue.addAll(frameOut.finish());
+			try {
+				// Writing the frame right away saves waking the event loop up, unless earlier frames wait for the channel
+				if(waiting || !write()){
+					loop.execute(flusher);
+				}
+			} catch (IOException e) {
+				close(e);
+				throw new ConnectException("The frame could not be written", e);
+			}
+		}
+	}
+
+	/**
+	 * Writes the queued buffers, as far as the channel takes them without blocking; the caller holds the write lock.
+	 *
+	 * @return true if every buffer has been written
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private boolean write() throws IOException {
+		ByteBuffer buffer;
+		while((buffer = writeQueue.peek()) != null){
+			channel.write(buffer);
+			if(buffer.hasRemaining()){
+				return false;
+			}
+			writeQueue.poll();
+			buffers.release(buffer);
+		}
+		return true;
+	}
+
+	/**
+	 * Handles the calls that the other side makes.
+	 */
+	public interface RequestHandler {
+
+		/**
+		 * Performs an operation.
+		 *
+		 * @param operation the operation
+		 * @param args the arguments
+		 * @return the return value, or null
+		 * @throws Exception the exception that is returned to the caller
+		 */
+		Object handle(byte operation, Object[] args) throws Exception;
+
+		/**
+		 * Tells the handler that the connection has been closed, by either side or because it failed.
+		 *
+		 * @param cause the reason why the connection was closed
+		 */
+		void closed(IOException cause);
+	}
+
+	/**
+	 * A call that waits for its reply.
+	 */
+	private static class PendingCall {
+
+		/** Whether the reply has arrived. */
+		private boolean done;
+
+		/** The return value. */
+		private Object value;
+
+		/** The exception that the call threw, or the reason why it failed. */
+		private Throwable error;
+
+		/**
+		 * Completes the call with a return value.
+		 *
+		 * @param value the value
+		 */
+		synchronized void complete(Object value){
+			this.value = value;
+			this.done = true;
+			notifyAll();
+		}
+
+		/**
+		 * Completes the call with an exception.
+		 *
+		 * @param error the exception
+		 */
+		synchronized void fail(Throwable error){
+			this.error = error;
+			this.done = true;
+			notifyAll();
+		}
+
+		/**
+		 * Waits for the reply, for a limited time.
+		 *
+		 * @param millis the longest time to wait, in milliseconds
+		 * @return true if the reply has arrived
+		 */
+		synchronized boolean await(long millis){
+			long deadline = System.currentTimeMillis() + millis;
+			boolean interrupted = false;
+			long remaining;
+			while(!done && (remaining = deadline - System.currentTimeMillis()) > 0){
+				try {
+					wait(remaining);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if(interrupted){
+				Thread.currentThread().interrupt();
+			}
+			return done;
+		}
+
+		/**
+		 * Gets the outcome of the call, once the reply has arrived.
+		 *
+		 * @return the return value
+		 * @throws RemoteException if the call failed, or threw an exception on the other side
+		 */
+		synchronized Object get() throws RemoteException {
+			if(error == null){
+				return value;
+			}
+			if(error instanceof RemoteException){
+				throw (RemoteException) error;
+			}
+			if(error instanceof RuntimeException){
+				throw (RuntimeException) error;
+			}
+			if(error instanceof Error){
+				throw new ServerError("Error on the other side", (Error) error);
+			}
+			throw new ServerException("Exception on the other side", (Exception) error);
+		}
+	}
+
+	/**
+	 * An output stream that fills pooled direct buffers with a frame, taking a new one whenever the current one is full.
+	 * It is used for one frame after another, so that the object stream that writes into it lasts as long as the connection.
+	 */
+	private static class FrameOutputStream extends OutputStream {
+
+		/** The buffers of the frame, in order. */
+		private final List<ByteBuffer> frameBuffers = new ArrayList<ByteBuffer>();
+
+		/** The buffer that is being filled. */
+		private ByteBuffer current;
+
+		/** The number of bytes of the frame written. */
+		private int length;
+
+		/**
+		 * Starts a frame.
+		 */
+		void begin(){
+			frameBuffers.clear();
+			length = 0;
+			next();
+		}
+
+		/**
+		 * Takes a new buffer.
+		 */
+		private void next(){
+			current = buffers.acquire();
+			frameBuffers.add(current);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.io.OutputStream#write(int)
+		 */
+		@Override
+		public void write(int b){
+			if(!current.hasRemaining()){
+				next();
+			}
+			current.put((byte) b);
+			length++;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.io.OutputStream#write(byte[], int, int)
+		 */
+		@Override
+		public void write(byte[] bytes, int offset, int count){
+			while(count > 0){
+				if(!current.hasRemaining()){
+					next();
+				}
+				int chunk = Math.min(count, current.remaining());
+				current.put(bytes, offset, chunk);
+				offset += chunk;
+				count -= chunk;
+				length += chunk;
+			}
+		}
+
+		/**
+		 * Fills in the length of the frame and makes the buffers ready to be written.
+		 *
+		 * @return the buffers, which the caller must copy before the next frame is started
+		 */
+		List<ByteBuffer> finish(){
+			frameBuffers.get(0).putInt(0, length - 4);
+			for(ByteBuffer buffer : frameBuffers){
+				buffer.flip();
+			}
+			return frameBuffers;
+		}
+
+		/**
+		 * Gives the buffers back to the pool, when the frame is not sent.
+		 */
+		void release(){
+			for(ByteBuffer buffer : frameBuffers){
+				buffers.release(buffer);
+			}
+		}
+	}
+
+	/**
+	 * An input stream over the payload of one frame after another, so that the object stream that reads from it lasts as long as the connection.
+	 */
+	private static class FrameInputStream extends InputStream {
+
+		/** The frame. */
+		private byte[] bytes = new byte[0];
+
+		/** The position of the next byte to be read. */
+		private int position;
+
+		/**
+		 * Starts reading a frame.
+		 *
+		 * @param bytes the frame
+		 * @param offset the position of its payload
+		 */
+		void set(byte[] bytes, int offset){
+			this.bytes = bytes;
+			this.position = offset;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.io.InputStream#read()
+		 */
+		@Override
+		public int read(){
+			return position < bytes.length ? bytes[position++] & 0xFF : -1;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.io.InputStream#read(byte[], int, int)
+		 */
+		@Override
+		public int read(byte[] buffer, int offset, int count){
+			if(count == 0){
+				return 0;
+			}
+			if(position == bytes.length){
+				return -1;
+			}
+			count = Math.min(count, bytes.length - position);
+			System.arraycopy(bytes, position, buffer, offset, count);
+			position += count;
+			return count;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.io.InputStream#available()
+		 */
+		@Override
+		public int available(){
+			return bytes.length - position;
+		}
+	}
+
+	/**
+	 * The classes that one side of a connection has described to the other, numbered in the order in which they were described.
+	 */
+	private static class ClassTable {
+
+		/** The classes, by number. */
+		private final List<ObjectStreamClass> classes = new ArrayList<ObjectStreamClass>();
+
+		/** The numbers of the classes, by name. */
+		private final Map<String, Integer> numbers = new HashMap<String, Integer>();
+
+		/**
+		 * Gets the number of classes.
+		 *
+		 * @return the number of classes
+		 */
+		int size(){
+			return classes.size();
+		}
+
+		/**
+		 * Gets a class.
+		 *
+		 * @param number the number of the class
+		 * @return the class
+		 * @throws StreamCorruptedException if there is no such class
+		 */
+		ObjectStreamClass get(int number) throws StreamCorruptedException {
+			if(number < 0 || number >= classes.size()){
+				throw new StreamCorruptedException("Unknown class number " + number);
+			}
+			return classes.get(number);
+		}
+
+		/**
+		 * Gets the number of a class.
+		 *
+		 * @param name the name of the class
+		 * @return the number, or null if the class has not been described
+		 */
+		Integer getNumber(String name){
+			return numbers.get(name);
+		}
+
+		/**
+		 * Adds a class, with the next number.
+		 *
+		 * @param desc the class
+		 */
+		void add(ObjectStreamClass desc){
+			numbers.put(desc.getName(), classes.size());
+			classes.add(desc);
+		}
+
+		/**
+		 * Forgets the classes from a number onwards, which the other side has not been told of.
+		 *
+		 * @param size the number of classes to keep
+		 */
+		void truncate(int size){
+			while(classes.size() > size){
+				numbers.remove(classes.remove(classes.size() - 1).getName());
+			}
+		}
+	}
+
+	/**
+	 * An object output stream that describes a class by its name the first time that it is sent, and by its number after that.
+	 * Both sides have the same classes, so the fields of a class need not be described.
+	 */
+	private static class CompactObjectOutputStream extends ObjectOutputStream {
+
+		/** The classes that have been described. */
+		private final ClassTable classes;
+
+		/**
+		 * Instantiates a new compact object output stream.
+		 *
+		 * @param out the output
+		 * @param classes the classes that have been described, by this stream or the ones before it
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		CompactObjectOutputStream(OutputStream out, ClassTable classes) throws IOException {
+			super(out);
+			this.classes = classes;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.io.ObjectOutputStream#writeClassDescriptor(java.io.ObjectStreamClass)
+		 */
+		@Override
+		protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+			Integer number = classes.getNumber(desc.getName());
+			if(number != null){
+				Varint.write(this, number + 1);
+				return;
+			}
+			classes.add(desc);
+			Varint.write(this, 0);
+			writeUTF(desc.getName());
+		}
+	}
+
+	/**
+	 * An object input stream that reads the classes that a {@link CompactObjectOutputStream} describes, and looks up their fields locally.
+	 */
+	private static class CompactObjectInputStream extends ObjectInputStream {
+
+		/** The classes that have been described. */
+		private final ClassTable classes;
+
+		/**
+		 * Instantiates a new compact object input stream.
+		 *
+		 * @param in the input
+		 * @param classes the classes that have been described, to this stream or the ones before it
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		CompactObjectInputStream(InputStream in, ClassTable classes) throws IOException {
+			super(in);
+			this.classes = classes;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.io.ObjectInputStream#readClassDescriptor()
+		 */
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+			int number = Varint.readInt(this);
+			if(number > 0){
+				return classes.get(number - 1);
+			}
+			ObjectStreamClass desc = ObjectStreamClass.lookupAny(Class.forName(readUTF(), false, NioConnection.class.getClassLoader()));
+			classes.add(desc);
+			return desc;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.io.ObjectInputStream#resolveClass(java.io.ObjectStreamClass)
+		 */
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc){
+			// The classes have already been loaded to look up their fields
+			return desc.forClass();
+		}
+	}
+}
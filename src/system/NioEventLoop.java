@@ -0,0 +1,111 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The thread that performs the I/O of the non-blocking socket channels of a node: it accepts the connections, reads the incoming frames and writes the outgoing ones.
+ * It never blocks on a call; the frames that it reads are handled on other threads.
+ * The other threads hand it work, such as registering a channel or writing a frame, through {@link #execute(Runnable)}, since a selector must only be used by its own thread.
+ */
+public class NioEventLoop extends Thread {
+
+	/** The selector. */
+	private final Selector selector;
+
+	/** The work handed over by the other threads. */
+	private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+	/**
+	 * Instantiates a new event loop.
+	 *
+	 * @param daemon whether the event loop runs as a daemon thread, rather than keeping the node running
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public NioEventLoop(boolean daemon) throws IOException {
+		super("NIO event loop");
+		this.selector = Selector.open();
+		setDaemon(daemon);
+	}
+
+	/**
+	 * Gets the selector; only the event loop may use it.
+	 *
+	 * @return the selector
+	 */
+	Selector getSelector() {
+		return selector;
+	}
+
+	/**
+	 * Runs a piece of work on the event loop.
+	 *
+	 * @param task the work
+	 */
+	public void execute(Runnable task){
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Thread#run()
+	 */
+	public void run(){
+		while(true){
+			try {
+				selector.select();
+			} catch (IOException e) {
+				e.printStackTrace();
+				return;
+			}
+			Runnable task;
+			while((task = tasks.poll()) != null){
+				try {
+					task.run();
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while(keys.hasNext()){
+				SelectionKey key = keys.next();
+				keys.remove();
+				Handler handler = (Handler) key.attachment();
+				// A failure of one channel must not stop the event loop, which serves all the others
+				try {
+					handler.handle(key);
+				} catch (RuntimeException e) {
+					handler.handleFailure(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Handles the events of a channel that is registered with the event loop.
+	 */
+	interface Handler {
+
+		/**
+		 * Handles the events that are ready on the channel.
+		 *
+		 * @param key the selection key of the channel
+		 */
+		void handle(SelectionKey key);
+
+		/**
+		 * Handles an exception that handling the events of the channel threw; the event loop carries on with the other channels.
+		 *
+		 * @param cause the exception
+		 */
+		void handleFailure(RuntimeException cause);
+	}
+}
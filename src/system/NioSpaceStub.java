@@ -0,0 +1,179 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.rmi.MarshalException;
+import java.rmi.RemoteException;
+import java.util.List;
+
+import shared.Shared;
+
+import api.Problem;
+import api.Task;
+
+/**
+ * A computer's end of a {@link NioConnection} to the Space: it calls the Space's operations over the connection, and performs the calls that the Space makes on the computer.
+ * The computer uses it in place of a remote reference to the Space, so the rest of the computer does not depend on the transport.
+ */
+public class NioSpaceStub implements Computer2Space, NioConnection.RequestHandler {
+
+	/** The operation that registers the computer. */
+	static final byte REGISTER = 1;
+
+	/** The operation that stores the child tasks and the successor of a task. */
+	static final byte STORE_TASKS = 2;
+
+	/** The operation that stores the result of a task. */
+	static final byte STORE_RESULT = 3;
+
+	/** The operation that stores a batch of results and split tasks. */
+	static final byte STORE_BATCH = 4;
+
+	/** The operation that sends a shared object. */
+	static final byte SET_SHARED = 5;
+
+	/** The connection to the Space. */
+	private final NioConnection connection;
+
+	/** The computer. */
+	private final Computer computer;
+
+	/**
+	 * Instantiates a new stub over a connection.
+	 *
+	 * @param connection the connection to the Space
+	 * @param computer the computer
+	 */
+	private NioSpaceStub(NioConnection connection, Computer computer){
+		this.connection = connection;
+		this.computer = computer;
+	}
+
+	/**
+	 * Connects a computer to the Space.
+	 *
+	 * @param host the host of the Space
+	 * @param port the port that the Space listens on
+	 * @param computer the computer
+	 * @return the stub, through which the computer calls the Space
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static NioSpaceStub connect(String host, int port, Computer computer) throws IOException {
+		// The event loop keeps the computer running, as its exported remote object does over RMI
+		NioEventLoop loop = new NioEventLoop(false);
+		loop.start();
+		NioConnection connection = new NioConnection(SocketChannel.open(new InetSocketAddress(host, port)), loop);
+		NioSpaceStub stub = new NioSpaceStub(connection, computer);
+		connection.start(stub);
+		return stub;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.NioConnection.RequestHandler#handle(byte, java.lang.Object[])
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Object handle(byte operation, Object[] args) throws Exception {
+		switch(operation){
+		case NioComputerStub.EXECUTE:
+			computer.execute((Task) args[0]);
+			return null;
+		case NioComputerStub.EXECUTE_BATCH:
+			return computer.executeBatch((List<Task<?>>) args[0], (Shared<?>) args[1]);
+		case NioComputerStub.RELEASE_TASKS:
+			return computer.releaseTasks((Integer) args[0]);
+		case NioComputerStub.EXIT:
+			computer.exit();
+			return null;
+		case NioComputerStub.SET_COMPUTER_ID:
+			computer.setComputerId((Integer) args[0]);
+			return null;
+		case NioComputerStub.GET_COMPUTER_ID:
+			return computer.getComputerId();
+		case NioComputerStub.GET_WORKER_COUNT:
+			return computer.getWorkerCount();
+		case NioComputerStub.PUT_PROBLEM:
+			computer.putProblem((Problem) args[0]);
+			return null;
+		case NioComputerStub.SET_SHARED:
+			computer.setShared((Shared<?>) args[0], (Boolean) args[1]);
+			return null;
+		case NioComputerStub.GET_SHARED:
+			return computer.getShared();
+		default:
+			// The other side runs a different version; the caller gets the error instead of a reply
+			throw new MarshalException("Unknown operation " + operation);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.NioConnection.RequestHandler#closed(java.io.IOException)
+	 */
+	public void closed(IOException cause){
+		// A computer without its Space has nothing left to do, and the Space has made its tasks ready again
+		System.out.println("The connection to the Space was closed: " + cause);
+		try {
+			computer.exit();
+		} catch (RemoteException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer2Space#register(system.Computer)
+	 */
+	@Override
+	public void register(Computer computer) throws RemoteException {
+		// The Space registers the computer at the other end of the connection
+		connection.call(REGISTER);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer2Space#storeTasks(api.Task, java.util.List, api.Task)
+	 */
+	@Override
+	public <T> void storeTasks(Task<T> parentTask, List<Task<T>> childTasks, Task<T> successorTask) throws RemoteException {
+		connection.call(STORE_TASKS, parentTask, childTasks, successorTask);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer2Space#storeResult(api.Task)
+	 */
+	@Override
+	public <T> void storeResult(Task<T> task) throws RemoteException {
+		connection.call(STORE_RESULT, task);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer2Space#storeBatch(java.util.List, int)
+	 */
+	@Override
+	public Shared<?> storeBatch(List<SpaceUpdate<?>> updates, int computerId) throws RemoteException {
+		return (Shared<?>) connection.call(STORE_BATCH, updates, computerId);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see system.Computer2Space#setShared(shared.Shared, int)
+	 */
+	@Override
+	public void setShared(Shared<?> shared, int computerId) throws RemoteException {
+		connection.call(SET_SHARED, shared, computerId);
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import utils.Constants;
+import api.Task;
+
+/**
+ * The queue of the tasks that are ready to be executed, which decides the order in which the Space hands them out to the computers.
+ * The order is chosen at startup: newest first, which is how the Space has always worked, oldest first, or best first by the lower bound of the tasks.
+ * The queue is used by the dispatchers of all the computers and by the calls that store the outcomes, so it must be thread-safe.
+ */
+public abstract class ReadyQueue {
+
+	/**
+	 * Creates the ready queue for a policy.
+	 *
+	 * @param policy one of {@link Constants#LIFO_READY_QUEUE}, {@link Constants#FIFO_READY_QUEUE} and {@link Constants#BEST_FIRST_READY_QUEUE}
+	 * @return the ready queue
+	 */
+	public static ReadyQueue create(int policy){
+		switch(policy){
+		case Constants.LIFO_READY_QUEUE:
+			return new DequeReadyQueue(true);
+		case Constants.FIFO_READY_QUEUE:
+			return new DequeReadyQueue(false);
+		case Constants.BEST_FIRST_READY_QUEUE:
+			return new BestFirstReadyQueue();
+		default:
+			throw new IllegalArgumentException("Unknown ready queue policy " + policy);
+		}
+	}
+
+	/**
+	 * Gets the policy that a name given at startup stands for.
+	 *
+	 * @param name "lifo", "fifo" or "best"
+	 * @return the policy
+	 */
+	public static int parsePolicy(String name){
+		if(name.equalsIgnoreCase("lifo")){
+			return Constants.LIFO_READY_QUEUE;
+		}
+		if(name.equalsIgnoreCase("fifo")){
+			return Constants.FIFO_READY_QUEUE;
+		}
+		if(name.equalsIgnoreCase("best")){
+			return Constants.BEST_FIRST_READY_QUEUE;
+		}
+		throw new IllegalArgumentException("Unknown ready queue policy " + name + "; expected lifo, fifo or best");
+	}
+
+	/**
+	 * Adds a task that has become ready.
+	 *
+	 * @param task the task
+	 */
+	public abstract void add(Task<?> task);
+
+	/**
+	 * Adds the tasks that a task has been split into.
+	 *
+	 * @param tasks the tasks, most promising first
+	 */
+	public void addAll(List<? extends Task<?>> tasks){
+		for(Task<?> task : tasks){
+			add(task);
+		}
+	}
+
+	/**
+	 * Puts back a task that was taken but could not be executed, so that it is taken again as soon as the policy allows.
+	 *
+	 * @param task the task
+	 */
+	public abstract void putBack(Task<?> task);
+
+	/**
+	 * Takes the next task, if there is one.
+	 *
+	 * @return the task, or null if the queue is empty
+	 */
+	public abstract Task<?> poll();
+
+	/**
+	 * Takes the next task, waiting for one if the queue is empty.
+	 *
+	 * @param timeout the longest time to wait
+	 * @param unit the unit of the timeout
+	 * @return the task, or null if none became ready in time
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 */
+	public abstract Task<?> poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Gets the number of ready tasks.
+	 *
+	 * @return the number of ready tasks
+	 */
+	public abstract int size();
+}
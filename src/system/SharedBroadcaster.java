@@ -0,0 +1,198 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import shared.Shared;
+
+/**
+ * Sends the shared objects of a node to other nodes, on a fixed pool of threads rather than on a new thread per shared object.
+ * Every receiver has a {@link Channel} that holds at most one shared object waiting to be sent; a newer one replaces it, so a slow receiver only ever gets the latest upper bound.
+ * A channel sends one shared object at a time, while the channels of different receivers send in parallel.
+ * The broadcaster counts the shared objects that it sends and drops, and measures the time from offering a shared object to its arrival.
+ */
+public class SharedBroadcaster {
+
+	/** The threads that send the shared objects. */
+	private final ExecutorService senders;
+
+	/** The number of shared objects offered to the channels. */
+	private final AtomicLong offered = new AtomicLong();
+
+	/** The number of shared objects that arrived. */
+	private final AtomicLong delivered = new AtomicLong();
+
+	/** The number of shared objects that were replaced by a newer one before they were sent. */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/** The number of shared objects that could not be sent. */
+	private final AtomicLong failed = new AtomicLong();
+
+	/** The sum of the propagation latencies of the shared objects that arrived, in nanoseconds. */
+	private final AtomicLong totalLatency = new AtomicLong();
+
+	/** The largest propagation latency, in nanoseconds. */
+	private final AtomicLong maxLatency = new AtomicLong();
+
+	/**
+	 * Instantiates a new shared broadcaster.
+	 *
+	 * @param name the name of the sender threads
+	 * @param threadCount the number of receivers that can be sent to in parallel
+	 */
+	public SharedBroadcaster(final String name, int threadCount){
+		senders = Executors.newFixedThreadPool(threadCount, new ThreadFactory(){
+			public Thread newThread(Runnable runnable){
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Creates the channel to a receiver.
+	 *
+	 * @param receiver the receiver
+	 * @return the channel
+	 */
+	public Channel createChannel(Receiver receiver){
+		return new Channel(receiver);
+	}
+
+	/**
+	 * Describes the shared objects that have been sent so far.
+	 *
+	 * @return the metrics
+	 */
+	public String getMetrics(){
+		long count = delivered.get();
+		double meanLatency = count == 0 ? 0 : totalLatency.get() / 1e6 / count;
+		return String.format("offered %d, delivered %d, dropped %d, failed %d, latency mean %.3f ms, max %.3f ms",
+				offered.get(), count, dropped.get(), failed.get(), meanLatency, maxLatency.get() / 1e6);
+	}
+
+	/**
+	 * Records the propagation latency of a shared object that arrived.
+	 *
+	 * @param latency the latency, in nanoseconds
+	 */
+	private void recordLatency(long latency){
+		delivered.incrementAndGet();
+		totalLatency.addAndGet(latency);
+		long max = maxLatency.get();
+		while(latency > max && !maxLatency.compareAndSet(max, latency)){
+			max = maxLatency.get();
+		}
+	}
+
+	/**
+	 * The node that a channel sends the shared objects to.
+	 */
+	public interface Receiver {
+
+		/**
+		 * Sends the shared object to the node.
+		 *
+		 * @param shared the shared object
+		 * @throws RemoteException the remote exception
+		 */
+		void receive(Shared<?> shared) throws RemoteException;
+	}
+
+	/**
+	 * A shared object waiting to be sent, along with the time at which it was offered.
+	 */
+	private static class Offer {
+
+		/** The shared object. */
+		private final Shared<?> shared;
+
+		/** The time at which the shared object was offered, in nanoseconds. */
+		private final long time;
+
+		/**
+		 * Instantiates a new offer.
+		 *
+		 * @param shared the shared object
+		 */
+		private Offer(Shared<?> shared){
+			this.shared = shared;
+			this.time = System.nanoTime();
+		}
+	}
+
+	/**
+	 * The channel to one receiver. It runs on a sender thread only while it has a shared object to send.
+	 */
+	public class Channel implements Runnable {
+
+		/** The receiver. */
+		private final Receiver receiver;
+
+		/** The shared object waiting to be sent, or null. */
+		private final AtomicReference<Offer> pending = new AtomicReference<Offer>();
+
+		/** Whether the channel has been handed to a sender thread. */
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		/**
+		 * Instantiates a new channel.
+		 *
+		 * @param receiver the receiver
+		 */
+		private Channel(Receiver receiver){
+			this.receiver = receiver;
+		}
+
+		/**
+		 * Offers a shared object to be sent, in place of the one that is waiting if there is one.
+		 * The caller must offer the shared objects in the order in which they were accepted, newest last.
+		 *
+		 * @param shared the shared object
+		 */
+		public void offer(Shared<?> shared){
+			offered.incrementAndGet();
+			if(pending.getAndSet(new Offer(shared)) != null){
+				dropped.incrementAndGet();
+			}
+			if(scheduled.compareAndSet(false, true)){
+				senders.execute(this);
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see java.lang.Runnable#run()
+		 */
+		public void run(){
+			while(true){
+				Offer offer = pending.getAndSet(null);
+				if(offer == null){
+					scheduled.set(false);
+					// A shared object may have been offered after the channel was found empty, without scheduling it
+					if(pending.get() == null || !scheduled.compareAndSet(false, true)){
+						return;
+					}
+					continue;
+				}
+				try {
+					receiver.receive(offer.shared);
+					recordLatency(System.nanoTime() - offer.time);
+				} catch (RemoteException e) {
+					failed.incrementAndGet();
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+}
@@ -8,6 +8,7 @@ import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -15,9 +16,17 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import shared.Shared;
+import utils.ConcurrentLongMap;
 import utils.Constants;
+import api.Problem;
+import api.ProblemRegistry;
 import api.Result;
 import api.Space;
 import api.Task;
@@ -32,37 +41,75 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 1L;
 
-	/** A blocking dequeue that stores the Tasks that are ready to be executed. */
-	private BlockingDeque<Task> readyTasks;
+	/** The queue that stores the Tasks that are ready to be executed, in the order in which they are handed out. */
+	private ReadyQueue readyTasks;
 	
 	/**
 	 * A blocking dequeue that stores the Results submitted by the ComputeServers.
 	 */
 	private BlockingDeque<Result> resultQueue;
 	
-	/** The map that stores the waiting successor tasks. */
-	private Map<Object, Task> waitingTasks;
+	/** The map that stores the waiting successor tasks, along with the arguments they are missing, by task id. */
+	private ConcurrentLongMap<Join> waitingTasks;
+	
+	/** Set once the final result of the current job has been stored, so that it is stored only once. */
+	private final AtomicBoolean finalResultStored = new AtomicBoolean();
 
 	/** A mapping between the computerId and the actual Computer Object. */
 	private Map<Integer, ComputerProxy> computerMap;
 
-	/** The computer id. */
-	private int computerId;
+	/** The last node id that was handed out, as a computer id or to a client; the tasks that a node creates have ids that start with its node id. */
+	private int nodeId;
 	
 	/** The shared object. */
-	private Shared shared;
+	private volatile Shared shared;
+	
+	/** The number of workers of all the registered computers. */
+	private final AtomicInteger totalWorkerCount = new AtomicInteger();
+	
+	/** Sends the newer shared objects to the computers, in parallel. */
+	private final SharedBroadcaster broadcaster = new SharedBroadcaster("Shared broadcaster", Constants.BROADCAST_THREADS);
+	
+	/** The id of the last job whose problem was put in a Space of this JVM; the Spaces of a JVM share it, since they share the ProblemRegistry. */
+	private static final AtomicLong jobId = new AtomicLong();
+	
+	/** Decides whether the tasks are split or executed as a whole. */
+	private final GranularityController granularity;
 
 	/**
-	 * Instantiates a new space impl.
+	 * Instantiates a new space impl that aims for the default task run time.
 	 * 
 	 * @throws RemoteException the remote exception
 	 */
 	protected SpaceImpl() throws RemoteException {
+		this(Constants.TARGET_TASK_RUN_TIME);
+	}
+	
+	/**
+	 * Instantiates a new space impl that hands out the ready tasks in the default order.
+	 *
+	 * @param targetRunTime the duration that the tasks should run for, in milliseconds
+	 * @throws RemoteException the remote exception
+	 */
+	protected SpaceImpl(long targetRunTime) throws RemoteException {
+		this(targetRunTime, Constants.READY_QUEUE_POLICY);
+	}
+	
+	/**
+	 * Instantiates a new space impl.
+	 *
+	 * @param targetRunTime the duration that the tasks should run for, in milliseconds
+	 * @param readyQueuePolicy the order in which the ready tasks are handed out
+	 * @throws RemoteException the remote exception
+	 */
+	protected SpaceImpl(long targetRunTime, int readyQueuePolicy) throws RemoteException {
 		super();
-		readyTasks = new LinkedBlockingDeque<Task>();
+		granularity = new GranularityController(targetRunTime);
+		readyTasks = ReadyQueue.create(readyQueuePolicy);
 		resultQueue = new LinkedBlockingDeque<Result>();
 		computerMap = Collections.synchronizedMap(new HashMap<Integer, ComputerProxy>());
-		waitingTasks = Collections.synchronizedMap(new HashMap<Object, Task>());
+		// The computers store their outcomes concurrently
+		waitingTasks = new ConcurrentLongMap<Join>();
 	}
 
 	/**
@@ -77,10 +124,15 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	 */
 	@Override
 	public synchronized void register(Computer computer) throws RemoteException {
-		computerId++;
+		int computerId = ++nodeId;
 		ComputerProxy proxy = new ComputerProxy(computer, computerId);
+		// The computer must have the problems of the current jobs before it receives any of their tasks
+		for(Problem problem : ProblemRegistry.getAll()){
+			computer.putProblem(problem);
+		}
 		computerMap.put(computerId, proxy);
-		System.out.println("Registering computer " + computerId);
+		totalWorkerCount.addAndGet(proxy.workerCount);
+		System.out.println("Registering computer " + computerId + " with " + proxy.workerCount + " workers");
 		proxy.start();
 		
 	}
@@ -92,7 +144,10 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	 */
 	@Override
 	public <T> void put(Task<T> task) throws RemoteException {
-		readyTasks.addFirst(task);		
+		// The run times measured for the previous job do not carry over to a job of another size
+		granularity.reset();
+		finalResultStored.set(false);
+		readyTasks.add(task);		
 		// As soon as the root task is put in space, propagate the init upperbound to all the registered computers
 		Shared<?> initUpperBound = task.getInitUpperBound();
 		System.out.println("Init upper bound: " + initUpperBound.get());
@@ -100,6 +155,37 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 		
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see api.Space#putProblem(api.Problem)
+	 */
+	@Override
+	public synchronized long putProblem(Problem problem) throws RemoteException {
+		// Synchronized with register, so that every computer receives the problem exactly once
+		problem.setJobId(jobId.incrementAndGet());
+		ProblemRegistry.register(problem);
+		List<ComputerProxy> computers;
+		synchronized(computerMap){
+			computers = new ArrayList<ComputerProxy>(computerMap.values());
+		}
+		for(ComputerProxy computer : computers){
+			computer.putProblem(problem);
+		}
+		return problem.getJobId();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see api.Space#createNodeId()
+	 */
+	@Override
+	public synchronized int createNodeId() throws RemoteException {
+		// Synchronized with register, so that a client never gets the id of a computer
+		return ++nodeId;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -137,35 +223,67 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	 * @throws Exception the exception
 	 */
 	public static void main(String[] args) throws Exception {
+		// The target task run time is optional
+		long targetRunTime = args.length > 0 ? Long.parseLong(args[0]) : Constants.TARGET_TASK_RUN_TIME;
+		// The computers connect over RMI, or over NIO if "nio" is given
+		boolean nio = args.length > 1 && args[1].equalsIgnoreCase("nio");
+		// The ready tasks are handed out "lifo", "fifo" or "best" first
+		int readyQueuePolicy = args.length > 2 ? ReadyQueue.parsePolicy(args[2]) : Constants.READY_QUEUE_POLICY;
 		// Construct & set a security manager to allow downloading of classes
 		// from a remote codebase
 		System.setSecurityManager(new RMISecurityManager());
 		// instantiate a space object
-		Space space = new SpaceImpl();
+		Space space = new SpaceImpl(targetRunTime, readyQueuePolicy);
 		// construct an rmiregistry within this JVM using the default port
 		Registry registry = LocateRegistry.createRegistry(1099);
 		// bind space in rmiregistry.
 		registry.rebind(Space.SERVICE_NAME, space);
-		System.out.println("Space is ready.");
+		if(nio){
+			// The clients still find the Space in the registry
+			NioComputerStub.listen((SpaceImpl) space, Constants.NIO_PORT);
+		}
+		System.out.println("Space is ready" + (nio ? " for NIO computers on port " + Constants.NIO_PORT : "") + ".");
 
 	}
 
-	/*
-	 * This thread's run method loops forever, removing tasks from the task
-	 * queue, invoking the associated Computer's execute method with the task as
-	 * its argument, and putting the returned Result object in the result queue
-	 * for retrieval by the client.
-	 */
 	/**
 	 * It represents the remote proxy to the ComputeServer.
+	 * The proxy keeps up to a window of tasks in flight on the computer: as many as it has workers, plus {@link Constants#PREFETCH_PER_WORKER} per worker that wait in the computer's local queue.
+	 * A worker that finishes a task therefore starts the next one right away instead of waiting for a round trip to the Space.
+	 * Every in-flight batch is held by a dispatcher thread until the call returns, so it can be put back in the ready queue if the computer fails.
+	 * The proxy also keeps track of the child tasks that the computer keeps to execute itself; the Space does not have them, so if the computer fails, the task that was split into them is executed again.
 	 */
-	private class ComputerProxy extends Thread {
+	private class ComputerProxy {
 
 		/** The computer. */
 		private Computer computer;
 
 		/** The computer id. */
 		private int computerId;
+		
+		/** The number of tasks that the computer can execute concurrently. */
+		private int workerCount;
+		
+		/** Set once the computer has failed, so that the other dispatchers stop sending it tasks. */
+		private volatile boolean failed;
+		
+		/** Decides how many tasks are sent to the computer in one call. */
+		private final BatchSizer batchSizer;
+		
+		/** The number of tasks that can be in flight on the computer. */
+		private int windowSize;
+		
+		/** A permit for every task that can still be sent to the computer. */
+		private Semaphore window;
+		
+		/** The last shared object that was sent along with a batch or a reply to the computer. */
+		private volatile Shared lastPiggybacked;
+		
+		/** Sends the newer shared objects to the computer. */
+		private final SharedBroadcaster.Channel sharedChannel;
+		
+		/** The split that every child task that the computer keeps to execute itself, and whose outcome has not been stored yet, descends from, by the task id of the child task. */
+		private final ConcurrentLongMap<KeptSplit> localTasks = new ConcurrentLongMap<KeptSplit>();
 
 		/**
 		 * Instantiates a new computer proxy.
@@ -178,38 +296,166 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 			this.computer = c;
 			this.computerId = computerId;
 			this.computer.setComputerId(computerId);
+			this.workerCount = c.getWorkerCount();
+			this.batchSizer = new BatchSizer(workerCount);
+			this.windowSize = workerCount * (1 + Constants.PREFETCH_PER_WORKER);
+			this.window = new Semaphore(windowSize);
+			this.sharedChannel = broadcaster.createChannel(new SharedBroadcaster.Receiver(){
+				public void receive(Shared<?> shared) throws RemoteException {
+					try {
+						computer.setShared(shared, false);
+					} catch (RemoteException e) {
+						fail();
+						throw e;
+					}
+				}
+			});
+		}
+		
+		/**
+		 * Starts the dispatcher threads, one for every task of the window, so that the window can be filled even with batches of one task.
+		 * They are daemon threads: a standalone Space is kept alive by RMI, and a {@link LocalEngine} must not outlive its client.
+		 */
+		public void start() {
+			for(int i = 0; i < windowSize; i++){
+				Dispatcher dispatcher = new Dispatcher();
+				dispatcher.setDaemon(true);
+				dispatcher.start();
+			}
+		}
+		
+		/**
+		 * It dispatches the ready tasks to the computer.
+		 * This thread's run method loops until the computer fails, removing a batch of tasks from the task
+		 * queue, as far as the window allows, and invoking the associated Computer's executeBatch method with the batch as
+		 * its argument.
+		 */
+		private class Dispatcher extends Thread {
+			
+			/*
+			 * (non-Javadoc)
+			 * 
+			 * @see java.lang.Thread#run()
+			 */
+			public void run() {
+				List<Task<?>> batch = new ArrayList<Task<?>>();
+				while (!failed) {
+					batch.clear();
+					try {
+						window.acquire();
+					} catch (InterruptedException e) {
+						System.out.println("Interrupted Exception");
+						continue;
+					}
+					try {
+						Task<?> first = readyTasks.poll(Constants.WORK_REQUEST_DELAY, TimeUnit.MILLISECONDS);
+						while(first == null && !failed){ // Ask the computers that keep child tasks to give some of them back
+							requestWork(ComputerProxy.this);
+							first = readyTasks.poll(Constants.WORK_REQUEST_DELAY, TimeUnit.MILLISECONDS);
+						}
+						if(first == null){
+							break;
+						}
+						batch.add(first);
+						// The batch takes no more than its share of the ready tasks, so that the other workers are not starved
+						int batchSize = Math.min(batchSizer.getBatchSize(), 1 + readyTasks.size() / Math.max(totalWorkerCount.get(), 1));
+						while(batch.size() < batchSize && window.tryAcquire()){
+							Task<?> t = readyTasks.poll();
+							if(t == null){
+								window.release();
+								break;
+							}
+							batch.add(t);
+						}
+						if(failed){ // Another dispatcher found the computer faulty while this one was waiting for a task
+							requeue(batch);
+							break;
+						}
+						for(Task<?> t : batch){
+							if(t.getTaskType() == Constants.CHILD_TASK && t.getSize() >= 0){
+								t.setAtomic(granularity.isAtomic(t.getSize(), t.getLevel(), readyTasks.size(), totalWorkerCount.get()));
+							}
+						}
+						long startTime = System.nanoTime();
+						long computeTime = computer.executeBatch(batch, piggyback());
+						batchSizer.record(batch.size(), System.nanoTime() - startTime, computeTime);
+					} catch (RemoteException e) {
+						e.printStackTrace();
+						/*
+						 * The Space accommodates faulty computers: If a computer
+						 * that is running a task returns a RemoteException, the
+						 * tasks are assigned to another computer.
+						 */
+						System.out.println("Remote Exception while executing a batch of "
+								+ batch.size() + " tasks from Computer "
+								+ computerId);
+						// Adding the tasks back to the task queue
+						System.out.println("Adding the tasks back to the task queue to be assigned to another Computer");
+						requeue(batch);
+						fail();
+						break;
+					} catch (InterruptedException e) {
+						System.out.println("Interrupted Exception");
+					} finally {
+						// A permit was taken for every task of the batch, or for the task that this thread was waiting for
+						window.release(Math.max(batch.size(), 1));
+					}
+				}
+			}
+			
+			/**
+			 * Puts the tasks of a batch back in the task queue, to be taken again in their original order.
+			 *
+			 * @param batch the batch
+			 */
+			private void requeue(List<Task<?>> batch) {
+				for(int i = batch.size() - 1; i >= 0; i--){
+					readyTasks.putBack(batch.get(i));
+				}
+			}
 		}
 
-		/*
-		 * (non-Javadoc)
-		 * 
-		 * @see java.lang.Thread#run()
+		/**
+		 * Asks the computer to give back some of the child tasks that it keeps, and makes them ready.
+		 *
+		 * @param max the largest number of tasks to give back
+		 * @return the number of tasks that were given back
 		 */
-		public void run() {
-			Task<?> t = null;
-			while (true) {
-				try {
-					t = readyTasks.takeFirst();
-					computer.execute(t);
-				} catch (RemoteException e) {
-					e.printStackTrace();
-					/*
-					 * The Space accommodates faulty computers: If a computer
-					 * that is running a task returns a RemoteException, the
-					 * task is assigned to another computer.
-					 */
-					System.out.println("Remote Exception while executing task "
-							+ t.getClass().getName() + " from Computer "
-							+ this.computerId);
-					// Adding the task back to the task queue
-					System.out.println("Adding the task back to the task queue to be assigned to another Computer");
-					readyTasks.addFirst(t);				
-					computerMap.remove(computerId);
-					break;
-				} catch (InterruptedException e) {
-					System.out.println("Interrupted Exception");
+		private int releaseTasks(int max) {
+			List<Task<?>> tasks;
+			try {
+				tasks = computer.releaseTasks(max);
+			} catch (RemoteException e) {
+				e.printStackTrace();
+				// The tasks that the computer kept are made ready by fail
+				fail();
+				return 0;
+			}
+			synchronized(localTasks){
+				for(Task<?> t : tasks){
+					KeptSplit split = localTasks.remove(t.getTaskId());
+					// The task is no longer needed if the split that it descends from is executed again
+					if(split != null){
+						split.pendingCount--;
+						readyTasks.add(t);
+					}
 				}
 			}
+			return tasks.size();
+		}
+
+		/**
+		 * Sends the problem of a job to the computer.
+		 *
+		 * @param problem the problem
+		 */
+		private void putProblem(Problem problem) {
+			try {
+				computer.putProblem(problem);
+			} catch (RemoteException e) {
+				e.printStackTrace();
+				fail();
+			}
 		}
 
 		/**
@@ -219,22 +465,128 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 			try {
 				computer.exit();
 			} catch (RemoteException e) {
+				// A computer that exits does not always reply
+				fail();
+			}
+		}
+		
+		/**
+		 * Stores a split whose child tasks the computer keeps, and keeps track of the child tasks.
+		 * If the computer has failed, the child tasks are lost with it, and the task that was split is made ready again instead.
+		 *
+		 * @param <T> the generic type
+		 * @param update the update
+		 */
+		private <T> void storeKeptTasks(SpaceUpdate<T> update) {
+			Task<T> parentTask = update.getTask();
+			Task<T> successorTask = update.getSuccessorTask();
+			synchronized(localTasks){
+				KeptSplit split = localTasks.remove(parentTask.getTaskId());
+				if(split != null){
+					split.pendingCount--;
+				}
+				if(failed){
+					readyTasks.add(parentTask);
+					return;
+				}
+				if(!storeSplit(parentTask, successorTask, new Join<T>(successorTask, update.getChildTaskIds()))){
+					return;
+				}
+				if(split == null){ // The task was sent by the Space, which can execute it again
+					split = new KeptSplit(parentTask);
+				}
+				split.successorTaskIds.add(successorTask.getTaskId());
+				for(long childTaskId : update.getChildTaskIds()){
+					localTasks.put(childTaskId, split);
+					split.pendingCount++;
+				}
+			}
+		}
+		
+		/**
+		 * Stops keeping track of a task that the computer kept, once its outcome has been stored.
+		 *
+		 * @param task the task
+		 */
+		private void stored(Task<?> task) {
+			synchronized(localTasks){
+				KeptSplit split = localTasks.remove(task.getTaskId());
+				if(split != null){
+					split.pendingCount--;
+				}
+			}
+		}
 
+		/**
+		 * Marks the computer as failed, unregisters it and makes the tasks whose child tasks it kept ready again, so that the other computers execute them.
+		 * It is called wherever a call to the computer fails, so a computer that fails while no batch is in flight is noticed as well; calling it again does no harm.
+		 * The dispatchers stop once they see that the computer has failed, and put back the batch that they were sending.
+		 */
+		private void fail() {
+			failed = true;
+			if(computerMap.remove(computerId) != null){
+				totalWorkerCount.addAndGet(-workerCount);
+				System.out.println("Computer " + computerId + " has failed; executing again the tasks whose children it kept");
+			}
+			// The child tasks that the computer kept are lost with it
+			synchronized(localTasks){
+				for(KeptSplit split : localTasks.removeAll()){
+					if(split.pendingCount > 0){
+						split.pendingCount = 0;
+						undoSplit(split);
+					}
+				}
 			}
 		}
 		
 		/**
-		 * Sets the shared object.
+		 * Gets the Space's shared object, to be sent along with a call to or from the computer, unless it has already been sent that way.
+		 * The computer ignores a shared object that is not newer than its own, so the shared objects that it proposed or was broadcast do no harm.
 		 *
-		 * @param shared the new shared
-		 * @param canPropagate the can propagate
+		 * @return the shared object, or null
 		 */
-		private void setShared(Shared shared, boolean canPropagate){
-			try {
-				computer.setShared(shared, canPropagate);
-			} catch (RemoteException e) {
-				e.printStackTrace();
+		private Shared<?> piggyback(){
+			Shared<?> current = shared;
+			if(current == lastPiggybacked){
+				return null;
 			}
+			lastPiggybacked = current;
+			return current;
+		}
+
+		/**
+		 * Sends the shared object to the computer, which does not propagate it back.
+		 * The call returns right away; if the computer has not received the previous shared object yet, it only receives this one.
+		 *
+		 * @param shared the new shared
+		 */
+		private void setShared(Shared shared){
+			sharedChannel.offer(shared);
+		}
+	}
+
+	/**
+	 * A task that a computer split and kept the children of, which the Space executes again if the computer fails.
+	 * It also stands for the splits of the kept children that the computer executed itself, since the Space does not have these children either.
+	 */
+	private static class KeptSplit {
+		
+		/** The task that was split. */
+		private final Task parentTask;
+		
+		/** The ids of the successor tasks of the split and of the splits that descend from it, the split's own first. */
+		private final List<Long> successorTaskIds = new ArrayList<Long>();
+		
+		/** The number of child tasks that descend from the split, that the computer keeps, and whose outcome has not been stored yet. */
+		private int pendingCount;
+		
+		/**
+		 * Instantiates a new kept split.
+		 *
+		 * @param parentTask the task that was split
+		 */
+		public KeptSplit(Task parentTask){
+			this.parentTask = parentTask;
 		}
 	}
 
@@ -245,30 +597,23 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	public <T> void storeResult(Task<T> task) {
 		String type = task.getTaskType() == Constants.CHILD_TASK ? "Child Task" : "Successor Task";
 		//System.out.println(task.getTaskId() + "; " + type + "; " + Arrays.toString(task.getInputList()) + "; " + task.getSuccessorTaskId() + "; " + task.getTaskRunTime());
-		Object successorTaskId = task.getSuccessorTaskId();
-		Task<T> successorTask = this.waitingTasks.get(successorTaskId);
-		// if successorTask == null, then that's the last task to be executed
-		if(successorTask == null){
+		if(task.getTaskType() == Constants.CHILD_TASK){
+			granularity.record(task.getSize(), task.getTaskRunTime());
+		}
+		long successorTaskId = task.getSuccessorTaskId();
+		// if the task has no successor, then that's the last task to be executed
+		if(successorTaskId == Constants.NO_TASK_ID){
 			storeFinalResult(task.getResult());
 			return;
 		}
-		//System.out.println("Successor in storeResult: " + successorTaskId);
-		
-		Task<T>[] inputs = successorTask.getInputList();
-		
-		inputs[task.getArgNo()] = task;
-		int joinCounter = successorTask.getJoinCounter() - 1;
-		//System.out.println("Join counter: " + joinCounter);
-		successorTask.setJoinCounter(joinCounter);		
-		
-		// This task has been executed. Hence remove it from the ready queue.
-		//this.readyTasks.remove(task.getTaskId());
-		if(joinCounter == 0){ // If the successor task has all its arguments set, move it from the waiting list to ready list
-			this.waitingTasks.remove(successorTaskId);
-			this.readyTasks.addFirst(successorTask);
+		Join<T> join = this.waitingTasks.get(successorTaskId);
+		// The successor is gone if it has already been released by an earlier copy of this outcome
+		if(join == null || !join.deliver(task)){
+			return;
 		}
-		
-
+		// The successor task has all its arguments set; move it from the waiting list to ready list
+		this.waitingTasks.remove(successorTaskId);
+		this.readyTasks.add(join.getSuccessorTask());
 	}
 
 	
@@ -278,40 +623,153 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	@Override
 	public <T> void storeTasks(Task<T> parentTask, List<Task<T>> childTasks, Task<T> successorTask)
 			throws RemoteException {
+		storeSplitTasks(parentTask, childTasks, successorTask);
+	}
+	
+	/**
+	 * Stores the newly created sub-tasks and the successor task.
+	 *
+	 * @param <T> the generic type
+	 * @param parentTask the parent task
+	 * @param childTasks the child tasks
+	 * @param successorTask the successor task
+	 */
+	private <T> void storeSplitTasks(Task<T> parentTask, List<Task<T>> childTasks, Task<T> successorTask) {
 		//String type = parentTask.getTaskType() == Constants.CHILD_TASK ? "Child Task" : "Successor Task";
 		//System.out.println(parentTask.getTaskId() + "; " + type + "; " + Arrays.toString(parentTask.getInputList()) + "; " + parentTask.getSuccessorTaskId() + "; " + parentTask.getTaskRunTime());
 		
-		this.waitingTasks.put(successorTask.getTaskId(), successorTask);
+		// If all the children have been pruned, the successor has nothing to wait for
+		boolean hasChildren = childTasks != null && !childTasks.isEmpty();
+		if(hasChildren){
+			for(Task<T> t : childTasks){
+				// Set the successor task for the newly created tasks
+				t.setSuccessorTaskId(successorTask.getTaskId());
+			}
+		}
+		if(!storeSplit(parentTask, successorTask, hasChildren ? new Join<T>(successorTask, childTasks) : null)){
+			return;
+		}
+		
+		if(!hasChildren){
+			this.readyTasks.add(successorTask);
+			return;
+		}
+		// The child tasks are listed most promising first, which the ready queue takes into account
+		this.readyTasks.addAll(childTasks);
+	}
+	
+	/**
+	 * Puts the successor task of a split in the waiting list, and substitutes it for the parent task in the input list of the parent's successor.
+	 *
+	 * @param <T> the generic type
+	 * @param parentTask the parent task
+	 * @param successorTask the successor task
+	 * @param join the arguments that the successor task waits for, or null if all the children have been pruned
+	 * @return true, if the split was stored; false, if it has already been stored
+	 */
+	private <T> boolean storeSplit(Task<T> parentTask, Task<T> successorTask, Join<T> join) {
+		if(join != null){
+			// The successor must be waiting before any of the children can be executed
+			this.waitingTasks.put(successorTask.getTaskId(), join);
+		}
 		
 		// if the parent task is not the root task
-		if(parentTask.getSuccessorTaskId() != null){
+		if(parentTask.getSuccessorTaskId() != Constants.NO_TASK_ID){
 			/* 
 			 * Update the parent successor's inputList.
 			 * In that list, the parent task must be substituted with the child tasks' successor task 
 			 */
-			Task<T> parentSuccessor = this.waitingTasks.get(parentTask.getSuccessorTaskId());
-			Task<T>[] parentInputList = parentSuccessor.getInputList();
-			successorTask.setArgNo(parentTask.getArgNo());
-			parentInputList[parentTask.getArgNo()] = successorTask;
+			Join<T> parentJoin = this.waitingTasks.get(parentTask.getSuccessorTaskId());
+			if(parentJoin == null || !parentJoin.handOver(parentTask, successorTask)){
+				// The split has already been stored, by a computer that failed after sending it
+				this.waitingTasks.remove(successorTask.getTaskId());
+				return false;
+			}
 			
 			//System.out.println("Input No. " + parentTask.getArgNo() + " of " + parentSuccessor + " is " + successorTask);							
 		}
-				
-		for(Task<T> t : childTasks){
-			// Set the successor task for the newly created tasks
-			t.setSuccessorTaskId(successorTask.getTaskId());
-			
-			// The regular tasks must go the ready list while the successor tasks must go to the waiting list
-			if (t.getTaskType() == Constants.CHILD_TASK){				
-				this.readyTasks.addFirst(t);				
-			}
-			else{
-				this.waitingTasks.put(t.getTaskId(), t);
+		return true;
+	}
+	
+	/**
+	 * Makes a task that a failed computer split and kept the children of ready again, and discards the successor tasks of the splits that descend from it.
+	 * The outcomes of the descendants that other computers may still store are then ignored.
+	 *
+	 * @param split the split
+	 */
+	private void undoSplit(KeptSplit split) {
+		for(long successorTaskId : split.successorTaskIds){
+			this.waitingTasks.remove(successorTaskId);
+		}
+		Task parentTask = split.parentTask;
+		if(parentTask.getSuccessorTaskId() != Constants.NO_TASK_ID){
+			Join parentJoin = this.waitingTasks.get(parentTask.getSuccessorTaskId());
+			if(parentJoin == null || !parentJoin.takeBack(parentTask, split.successorTaskIds.get(0))){
+				return;
 			}
-		}		
+		}
+		this.readyTasks.add(parentTask);
 	}
 
 	
+	/* (non-Javadoc)
+	 * @see system.Computer2Space#storeBatch(java.util.List, int)
+	 */
+	@Override
+	public Shared<?> storeBatch(List<SpaceUpdate<?>> updates, int computerId) throws RemoteException {
+		// If the computer has been found faulty meanwhile, the splits whose child tasks it keeps are executed again instead
+		ComputerProxy computer = computerMap.get(computerId);
+		for(SpaceUpdate<?> update : updates){
+			store(update, computer);
+		}
+		return computer == null ? null : computer.piggyback();
+	}
+	
+	/**
+	 * Stores an update that a computer buffered.
+	 *
+	 * @param <T> the generic type
+	 * @param update the update
+	 * @param computer the computer that sent the update, or null if it is no longer registered
+	 */
+	private <T> void store(SpaceUpdate<T> update, ComputerProxy computer) {
+		if(update.isLocal()){
+			if(computer != null){
+				computer.storeKeptTasks(update);
+			}
+			else{ // The computer has failed and the child tasks are lost with it; if the task was one that the computer kept, the outcome of the task is ignored
+				this.readyTasks.add(update.getTask());
+			}
+			return;
+		}
+		if(computer != null){ // The outcome of a task that the computer kept has been stored
+			computer.stored(update.getTask());
+		}
+		if(update.isResult()){
+			storeResult(update.getTask());
+		}
+		else{
+			storeSplitTasks(update.getTask(), update.getChildTasks(), update.getSuccessorTask());
+		}
+	}
+	
+	/**
+	 * Asks the computers that keep child tasks to give some of them back, until one does.
+	 *
+	 * @param idleComputer the computer that has run out of tasks
+	 */
+	private void requestWork(ComputerProxy idleComputer) {
+		List<ComputerProxy> computers;
+		synchronized(computerMap){
+			computers = new ArrayList<ComputerProxy>(computerMap.values());
+		}
+		for(ComputerProxy computer : computers){
+			if(computer != idleComputer && !computer.localTasks.isEmpty() && computer.releaseTasks(idleComputer.workerCount) > 0){
+				return;
+			}
+		}
+	}
+	
 	/**
 	 * Stores the final result that is obtained by the Client.
 	 *
@@ -319,7 +777,12 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 	 * @param result the result
 	 */
 	private <T> void storeFinalResult(Result<T> result){
+		// A computer that failed after sending the result may have had the task executed again
+		if(!finalResultStored.compareAndSet(false, true)){
+			return;
+		}
 		System.out.println("Storing final result");
+		System.out.println("Upper bound propagation: " + broadcaster.getMetrics());
 		// process the result		
 		try {
 			resultQueue.put(result);			
@@ -336,28 +799,45 @@ public class SpaceImpl extends UnicastRemoteObject implements Space,
 		if(this.shared == null || proposedShared.isNewerThan(this.shared)){
 			//System.out.println("New cost received from " + computerId + ". Propagating to all other computers.");
 			this.shared = proposedShared;
-			Thread thread = new Thread(){
-				public void run(){
-					distributeShared(computerId);
-				}
-			};
-			thread.start();
+			// The shared objects are offered in the order in which they are accepted, so the computers end up with the newest one
+			distributeShared(computerId);
 		}
 		else{
 			//System.out.println("Old cost received from " + computerId);
 		}
 	}
 
+	/**
+	 * Fails a registered computer without calling it, as when the Space learns that the connection to it has closed.
+	 * It does nothing if the computer is not registered, or has already failed.
+	 *
+	 * @param computer the computer, as it was registered
+	 */
+	void computerFailed(Computer computer){
+		List<ComputerProxy> computers;
+		synchronized(computerMap){
+			computers = new ArrayList<ComputerProxy>(computerMap.values());
+		}
+		for(ComputerProxy proxy : computers){
+			if(proxy.computer == computer){
+				proxy.fail();
+			}
+		}
+	}
+
 	/**
 	 * Distribute the shared object to all the registered computers except the one which sent it.
 	 *
 	 * @param computerId the computer id
 	 */
 	private void distributeShared(int computerId){
-		for (Entry<Integer, ComputerProxy> entry : computerMap.entrySet()) {
-			if(entry.getKey().intValue() != computerId){
-				ComputerProxy computer = entry.getValue();
-				computer.setShared(this.shared, false);
+		List<ComputerProxy> computers;
+		synchronized(computerMap){
+			computers = new ArrayList<ComputerProxy>(computerMap.values());
+		}
+		for (ComputerProxy computer : computers) {
+			if(computer.computerId != computerId){
+				computer.setShared(this.shared);
 			}
 		}
 	}
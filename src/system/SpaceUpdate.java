@@ -0,0 +1,146 @@
+/*
+ * @author gautham
+ */
+package system;
+
+import java.io.Serializable;
+import java.util.List;
+
+import api.Task;
+
+/**
+ * Represents a call to the Space's storeResult or storeTasks method that a computer buffers, so that several of them can be sent to the Space in a single remote call.
+ * The computer may keep the child tasks of a split to execute them itself; the update then carries only their ids, and the Space keeps track of them until their outcomes are stored.
+ *
+ * @param <T> the generic type
+ */
+public class SpaceUpdate<T> implements Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = 1L;
+
+	/** The task that was executed, or split into the child tasks. */
+	private Task<T> task;
+
+	/** The child tasks; null if the computer keeps them. */
+	private List<Task<T>> childTasks;
+	
+	/** The ids of the child tasks that the computer keeps, by argument number; null if the child tasks are sent. */
+	private long[] childTaskIds;
+
+	/** The successor task of the child tasks; null if the update stores the result of the task. */
+	private Task<T> successorTask;
+
+	/**
+	 * Instantiates a new space update.
+	 *
+	 * @param task the task
+	 * @param childTasks the child tasks
+	 * @param childTaskIds the ids of the child tasks that the computer keeps
+	 * @param successorTask the successor task
+	 */
+	private SpaceUpdate(Task<T> task, List<Task<T>> childTasks, long[] childTaskIds, Task<T> successorTask){
+		this.task = task;
+		this.childTasks = childTasks;
+		this.childTaskIds = childTaskIds;
+		this.successorTask = successorTask;
+	}
+
+	/**
+	 * Creates an update that stores the result of an executed task.
+	 *
+	 * @param <T> the generic type
+	 * @param task the task
+	 * @return the update
+	 * @see Computer2Space#storeResult(Task)
+	 */
+	public static <T> SpaceUpdate<T> result(Task<T> task){
+		return new SpaceUpdate<T>(task, null, null, null);
+	}
+
+	/**
+	 * Creates an update that stores the child tasks and the successor task that a task was split into.
+	 *
+	 * @param <T> the generic type
+	 * @param parentTask the parent task
+	 * @param childTasks the child tasks
+	 * @param successorTask the successor task
+	 * @return the update
+	 * @see Computer2Space#storeTasks(Task, List, Task)
+	 */
+	public static <T> SpaceUpdate<T> tasks(Task<T> parentTask, List<Task<T>> childTasks, Task<T> successorTask){
+		return new SpaceUpdate<T>(parentTask, childTasks, null, successorTask);
+	}
+
+	/**
+	 * Creates an update that registers a split whose child tasks the computer keeps to execute itself.
+	 * Only the ids of the child tasks are sent; the computer sends the tasks themselves if the Space asks for them back.
+	 *
+	 * @param <T> the generic type
+	 * @param parentTask the parent task
+	 * @param childTasks the child tasks
+	 * @param successorTask the successor task
+	 * @return the update
+	 */
+	public static <T> SpaceUpdate<T> keptTasks(Task<T> parentTask, List<Task<T>> childTasks, Task<T> successorTask){
+		long[] childTaskIds = new long[childTasks.size()];
+		for(Task<T> t : childTasks){
+			childTaskIds[t.getArgNo()] = t.getTaskId();
+		}
+		return new SpaceUpdate<T>(parentTask, null, childTaskIds, successorTask);
+	}
+
+	/**
+	 * Checks if the update stores the result of a task, rather than the tasks that it was split into.
+	 *
+	 * @return true, if it is a result
+	 */
+	public boolean isResult() {
+		return successorTask == null;
+	}
+
+	/**
+	 * Gets the task that was executed, or split into the child tasks.
+	 *
+	 * @return the task
+	 */
+	public Task<T> getTask() {
+		return task;
+	}
+
+	/**
+	 * Gets the child tasks.
+	 *
+	 * @return the child tasks, or null if the computer keeps them
+	 */
+	public List<Task<T>> getChildTasks() {
+		return childTasks;
+	}
+
+	/**
+	 * Gets the successor task of the child tasks.
+	 *
+	 * @return the successor task
+	 */
+	public Task<T> getSuccessorTask() {
+		return successorTask;
+	}
+
+	/**
+	 * Gets the ids of the child tasks that the computer keeps.
+	 *
+	 * @return the ids by argument number, or null if the child tasks are sent
+	 */
+	public long[] getChildTaskIds() {
+		return childTaskIds;
+	}
+	
+	/**
+	 * Checks if the computer keeps the child tasks.
+	 *
+	 * @return true, if the computer executes the child tasks itself
+	 */
+	public boolean isLocal() {
+		return childTaskIds != null;
+	}
+}
@@ -3,19 +3,27 @@
  */
 package tasks;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.rmi.RemoteException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Queue;
 import java.util.Stack;
-import java.util.UUID;
+import java.util.concurrent.RecursiveTask;
 
 import shared.DoubleShared;
+import shared.Incumbent;
 import shared.Shared;
 import solution.EuclideanTSPSolution;
+import solution.SearchState;
 import solution.Solution;
 import utils.Constants;
+import utils.DoubleKeyHeap;
+import utils.TaskIdGenerator;
+import utils.Varint;
 import api.Result;
 import api.Task;
 
@@ -28,8 +36,29 @@ public final class BranchAndBound extends Task<Solution<?>>{
 	private static final long serialVersionUID = 1L;
 	
 	
+	/** The number of nodes searched in place between two reads of the shared upper bound when the computer does not keep an incumbent; it must be a power of two. */
+	private static final int SHARED_REFRESH_INTERVAL = 1024;
+	
+	/** The number of nodes searched between two reads of the clock when the task has a time budget; it must be a power of two. */
+	private static final int BUDGET_CHECK_INTERVAL = 1024;
+	
 	/** The partial solution corresponding to the node in the sub-tree that is being explored. */
-	private Solution<?> solution;
+	private transient Solution<?> solution;
+	
+	/** The size of the sub-problem of the node that the task was created for; the solution is replaced by the minimum solution once the task has been executed. */
+	private transient int size = -1;
+	
+	/** The strategy used to explore the sub-tree of an atomic task. */
+	private transient int searchMode = Constants.STACK_SEARCH;
+	
+	/** The number of nodes that an atomic task searches before it gives up the rest of its sub-tree; 0 if it is unlimited. */
+	private transient long nodeBudget;
+	
+	/** The time, in nanoseconds, that an atomic task searches before it gives up the rest of its sub-tree; 0 if it is unlimited. */
+	private transient long timeBudget;
+	
+	/** The tasks for the parts of the sub-tree that were left unexplored when the budget ran out; they are sent to the Space as the children of this task. */
+	private transient List<Task<Solution<?>>> unfinishedTasks;
 	
 	/**
 	 * Instantiates a new branch-and-bound task.
@@ -37,7 +66,7 @@ public final class BranchAndBound extends Task<Solution<?>>{
 	 * @param taskType the task type
 	 */
 	public BranchAndBound(int taskType){
-		super(UUID.randomUUID(), taskType);
+		super(TaskIdGenerator.nextId(), taskType);
 	}
 	
 	/**
@@ -47,8 +76,9 @@ public final class BranchAndBound extends Task<Solution<?>>{
 	 * @param level the level in the tree
 	 */
 	public BranchAndBound(Solution<Double> solution, int level){
-		super(UUID.randomUUID(), Constants.CHILD_TASK, level);
-		this.solution = solution;				
+		super(TaskIdGenerator.nextId(), Constants.CHILD_TASK, level);
+		this.solution = solution;
+		this.size = solution.getSize();				
 	}
 	
 	/**
@@ -61,10 +91,25 @@ public final class BranchAndBound extends Task<Solution<?>>{
 	public Result<Solution<?>> execute() {
 		
 		Result<Solution<?>> result = new Result<Solution<?>>();
-		Solution<?> minSolution = null;
+		// The successor of a task that ran out of budget starts with the solution that the task found
+		Solution<?> minSolution = this.taskType == Constants.SUCCESSOR_TASK ? this.solution : null;
 		
 		if(this.taskType == Constants.CHILD_TASK){ // atomic task; explore the sub-tree and find the minimum solution
-			minSolution = searchSubTree();						
+			List<Solution<?>> unexplored = nodeBudget > 0 || timeBudget > 0 ? new ArrayList<Solution<?>>() : null;
+			if(searchMode == Constants.BEST_FIRST_SEARCH){
+				minSolution = searchBestFirst(unexplored);
+			}
+			else if(searchMode == Constants.FORK_JOIN_SEARCH){
+				// On a computer the task already runs on a fork/join worker, so the forked sub-trees are stolen by the other workers of that pool
+				minSolution = new SubTreeSearch(solution, 0).invoke();
+			}
+			else{
+				SearchState state = searchMode == Constants.IN_PLACE_SEARCH ? solution.createSearchState() : null;
+				minSolution = state != null ? searchInPlace(state, unexplored) : searchSubTree(solution, unexplored);
+			}
+			if(unexplored != null){
+				createUnfinishedTasks(unexplored);
+			}
 		}
 		else if(this.getInputList() != null){// Successor task; proceed only if it has children. It might be the case that all the children have been pruned.
 			
@@ -87,17 +132,22 @@ public final class BranchAndBound extends Task<Solution<?>>{
 	}
 	
 	/**
-	 * Explore the search tree having the current node as the root and find the solution that is of minimum cost.
+	 * Explore the search tree having the given node as the root and find the solution that is of minimum cost.
+	 * If a list is given for the unexplored nodes, the search stops once the budget of the task runs out and the nodes left on the stack are added to that list.
 	 *
+	 * @param root the root of the sub-tree
+	 * @param unexplored the list that receives the unexplored nodes, or null if the search is not limited by the budget
 	 * @return solution the solution that has the minimum cost
 	 */
-	private Solution<?> searchSubTree(){
+	private Solution<?> searchSubTree(Solution<?> root, List<Solution<?>> unexplored){
 		// A Stack to hold the nodes traversed in the search tree.
 		Stack<Solution<?>> stack = new Stack<Solution<?>>();
 		// Push the current solution
-		stack.push(solution);		
+		stack.push(root);		
 		
 		Solution<?> minCostSolution = null;
+		long deadline = getDeadline();
+		long nodes = 0;
 		
 		while(! stack.isEmpty()){
 			// Pop each node and check to see if the sub-tree rooted at that node can be pruned.
@@ -109,6 +159,14 @@ public final class BranchAndBound extends Task<Solution<?>>{
 				continue;
 			}
 			
+			if(unexplored != null && isOverBudget(++nodes, deadline)){ // Give up the nodes that are left, this one included, the most promising first
+				stack.push(partialSolution);
+				for(int i = stack.size() - 1; i >= 0; i--){
+					unexplored.add(stack.get(i));
+				}
+				break;
+			}
+			
 			// Get all the immediate children
 			Queue<?> children = null;
 			try {
@@ -116,17 +174,20 @@ public final class BranchAndBound extends Task<Solution<?>>{
 			} catch (RemoteException e) {
 				e.printStackTrace();
 			}
-			for(Object child : children){
+			// The children are ordered most promising first; push them in reverse so that the most promising one is popped first.
+			Object[] childArray = children.toArray();
+			for(int i = childArray.length - 1; i >= 0; i--){
+				Solution<?> child = (Solution<?>) childArray[i];
 				// If the child represents a complete solution, check if that solution is lesser than the upper bound
-				if(((Solution<?>) child).isComplete()){
-					double distance = (Double) ((Solution<?>)child).getLowerBound();
+				if(child.isComplete()){
+					double distance = (Double) child.getLowerBound();
 					if(distance <= getSharedValue()){
 						setSharedValue(distance);
-						minCostSolution = (Solution<?>) child;
+						minCostSolution = child;
 					}
 				}
 				else{ // The child doesn't represent a complete solution yet; push the child to the stack.
-					stack.push((Solution<?>) child);
+					stack.push(child);
 				}
 			}
 		}		
@@ -135,11 +196,351 @@ public final class BranchAndBound extends Task<Solution<?>>{
 	
 	
 	/**
-	 * Gets the shared value.
+	 * Explore the search tree having the current node as the root in best-first order and find the solution that is of minimum cost.
+	 * The frontier is a heap keyed by the lower bound, so the node that has the smallest lower bound is always expanded next. 
+	 * Once the smallest lower bound on the frontier reaches the upper bound, all the remaining nodes can be pruned at once.
+	 * The frontier can grow exponentially; when it holds {@link Constants#BEST_FIRST_FRONTIER_LIMIT} nodes, the nodes are explored depth-first until it shrinks again.
+	 * If a list is given for the unexplored nodes, the search stops once the budget of the task runs out and the nodes left on the frontier are added to that list.
+	 *
+	 * @param unexplored the list that receives the unexplored nodes, or null if the search is not limited by the budget
+	 * @return solution the solution that has the minimum cost
+	 */
+	private Solution<?> searchBestFirst(List<Solution<?>> unexplored){
+		DoubleKeyHeap<Solution<?>> frontier = new DoubleKeyHeap<Solution<?>>();
+		frontier.add((Double) solution.getLowerBound(), solution);
+		
+		Solution<?> minCostSolution = null;
+		long deadline = getDeadline();
+		long nodes = 0;
+		
+		while(! frontier.isEmpty()){
+			if(frontier.peekKey() >= getSharedValue()){ // Every node on the frontier can be pruned
+				break;
+			}
+			if(unexplored != null && isOverBudget(++nodes, deadline)){ // Give up the nodes that are left on the frontier
+				while(! frontier.isEmpty()){
+					unexplored.add(frontier.remove());
+				}
+				break;
+			}
+			Solution<?> partialSolution = frontier.remove();
+			
+			if(frontier.size() >= Constants.BEST_FIRST_FRONTIER_LIMIT){ // Explore this node depth-first so that the frontier does not grow
+				Solution<?> subTreeSolution = searchDepthFirst(partialSolution);
+				if(subTreeSolution != null){
+					minCostSolution = subTreeSolution;
+				}
+				continue;
+			}
+			
+			// Get all the immediate children
+			Queue<?> children = null;
+			try {
+				children = partialSolution.getChildren(this.getShared());
+			} catch (RemoteException e) {
+				e.printStackTrace();
+			}
+			for(Object child : children){
+				double lowerBound = (Double) ((Solution<?>) child).getLowerBound();
+				// If the child represents a complete solution, check if that solution is lesser than the upper bound
+				if(((Solution<?>) child).isComplete()){
+					if(lowerBound <= getSharedValue()){
+						setSharedValue(lowerBound);
+						minCostSolution = (Solution<?>) child;
+					}
+				}
+				else{ 
+					frontier.add(lowerBound, (Solution<?>) child);
+				}
+			}
+		}
+		return minCostSolution;
+	}
+	
+	/**
+	 * Explore the search tree having the given node as the root depth-first, in place if the solution supports it.
+	 *
+	 * @param root the root of the sub-tree
+	 * @return solution the solution that has the minimum cost
+	 */
+	private Solution<?> searchDepthFirst(Solution<?> root){
+		SearchState state = root.createSearchState();
+		return state != null ? searchInPlace(state, null) : searchSubTree(root, null);
+	}
+	
+	/**
+	 * It explores the sub-tree rooted at a node as a fork/join task.
+	 * While the node is shallow and the worker has few queued tasks, each child is forked as a separate task, which an idle worker of the same computer can steal.
+	 * Otherwise the sub-tree is explored sequentially.
+	 */
+	private final class SubTreeSearch extends RecursiveTask<Solution<?>> {
+		
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+		
+		/** The root of the sub-tree. */
+		private final Solution<?> root;
+		
+		/** The depth of the root below the node of the atomic task. */
+		private final int depth;
+		
+		/**
+		 * Instantiates a new sub-tree search.
+		 *
+		 * @param root the root of the sub-tree
+		 * @param depth the depth of the root below the node of the atomic task
+		 */
+		SubTreeSearch(Solution<?> root, int depth){
+			this.root = root;
+			this.depth = depth;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.RecursiveTask#compute()
+		 */
+		@Override
+		protected Solution<?> compute() {
+			if((Double) root.getLowerBound() >= getSharedValue()){ // Prune that sub-tree
+				return null;
+			}
+			if(depth >= Constants.FORK_JOIN_SPLIT_DEPTH || getSurplusQueuedTaskCount() > Constants.FORK_JOIN_SURPLUS_LIMIT){
+				return searchDepthFirst(root);
+			}
+			
+			// Get all the immediate children
+			Queue<?> children = null;
+			try {
+				children = root.getChildren(getShared());
+			} catch (RemoteException e) {
+				e.printStackTrace();
+			}
+			Solution<?> minCostSolution = null;
+			List<SubTreeSearch> forked = new ArrayList<SubTreeSearch>(children.size());
+			for(Object child : children){
+				Solution<?> childSolution = (Solution<?>) child;
+				// If the child represents a complete solution, check if that solution is lesser than the upper bound
+				if(childSolution.isComplete()){
+					double distance = (Double) childSolution.getLowerBound();
+					if(distance <= getSharedValue()){
+						setSharedValue(distance);
+						minCostSolution = childSolution;
+					}
+				}
+				else{ 
+					forked.add(new SubTreeSearch(childSolution, depth + 1));
+				}
+			}
+			// The children are ordered most promising first; fork the others and explore the most promising one on this worker.
+			for(int i = forked.size() - 1; i > 0; i--){
+				forked.get(i).fork();
+			}
+			if(!forked.isEmpty()){
+				minCostSolution = better(minCostSolution, forked.get(0).compute());
+			}
+			for(int i = 1; i < forked.size(); i++){
+				minCostSolution = better(minCostSolution, forked.get(i).join());
+			}
+			return minCostSolution;
+		}
+		
+		/**
+		 * Gets the better of two solutions, either of which may be null.
+		 *
+		 * @param first the first solution
+		 * @param second the second solution
+		 * @return the better solution
+		 */
+		private Solution<?> better(Solution<?> first, Solution<?> second){
+			if(first == null){
+				return second;
+			}
+			return second != null && second.compareTo(first) ? second : first;
+		}
+	}
+	
+	/**
+	 * Explore the search tree having the current node as the root by modifying the given search state in place, and find the solution that is of minimum cost.
+	 * The nodes are neither created nor pushed on a stack; the state descends into a branch and ascends back once the branch has been explored. 
+	 * The only bookkeeping is the next branch to be explored at each depth.
+	 * If a list is given for the unexplored nodes, the search stops once the budget of the task runs out, and a Solution object is created for every branch that is left at each depth.
+	 *
+	 * @param state the search state positioned at the current node
+	 * @param unexplored the list that receives the unexplored nodes, or null if the search is not limited by the budget
+	 * @return solution the solution that has the minimum cost
+	 */
+	private Solution<?> searchInPlace(SearchState state, List<Solution<?>> unexplored){
+		Solution<?> minCostSolution = null;
+		Incumbent incumbent = getIncumbent();
+		double upperBound = getSharedValue();
+		state.setUpperBound(upperBound);
+		
+		int maxDepth = state.getMaxDepth();
+		// The next branch to be explored and the number of branches at each depth
+		int[] nextBranch = new int[maxDepth + 1];
+		int[] branchCount = new int[maxDepth + 1];
+		
+		int depth = 0;
+		branchCount[0] = state.expand();
+		long nodes = 0;
+		long deadline = getDeadline();
+		
+		while(true){
+			if(nextBranch[depth] == branchCount[depth]){ // All the branches of this node have been explored
+				if(depth == 0){
+					break;
+				}
+				state.ascend();
+				depth--;
+				continue;
+			}
+			
+			if(unexplored != null && isOverBudget(nodes + 1, deadline)){ // Give up the branches that are left at each depth
+				Solution<?> collectedSolution = collectUnexplored(state, depth, nextBranch, branchCount, upperBound, unexplored);
+				if(collectedSolution != null){
+					minCostSolution = collectedSolution;
+				}
+				break;
+			}
+			
+			double lowerBound = state.descend(nextBranch[depth]++);
+			nodes++;
+			// Other tasks may have found a better solution. Reading the incumbent is a plain memory load; reading the shared object is not free, so it is done periodically.
+			if(incumbent != null){
+				double sharedValue = incumbent.get();
+				if(sharedValue < upperBound){
+					upperBound = sharedValue;
+					state.setUpperBound(upperBound);
+				}
+			}
+			else if((nodes & (SHARED_REFRESH_INTERVAL - 1)) == 0){
+				upperBound = Math.min(upperBound, getSharedValue());
+				state.setUpperBound(upperBound);
+			}
+			
+			if(state.isComplete()){ // If the child represents a complete solution, check if that solution is lesser than the upper bound
+				if(lowerBound <= upperBound){
+					upperBound = lowerBound;
+					state.setUpperBound(upperBound);
+					setSharedValue(lowerBound);
+					minCostSolution = state.toSolution();
+				}
+				state.ascend();
+			}
+			else if(lowerBound >= upperBound){ // Prune that sub-tree
+				state.ascend();
+			}
+			else{ // Explore the sub-tree rooted at the child
+				depth++;
+				nextBranch[depth] = 0;
+				branchCount[depth] = state.expand();
+			}
+		}
+		return minCostSolution;
+	}
+	
+	/**
+	 * Creates a Solution object for every branch that is left to be explored at each depth of an in-place search, and ascends the state back to its root.
+	 * A branch that is a complete tour is not left to a task, which would have nothing to explore; it is checked against the upper bound right away, as the search would have done.
+	 *
+	 * @param state the search state
+	 * @param depth the depth of the current node
+	 * @param nextBranch the next branch to be explored at each depth
+	 * @param branchCount the number of branches at each depth
+	 * @param upperBound the upper bound; the branches whose lower bound reaches it are pruned
+	 * @param unexplored the list that receives the unexplored nodes
+	 * @return the complete solution among the branches that is cheaper than the upper bound, or null if there is none
+	 */
+	private Solution<?> collectUnexplored(SearchState state, int depth, int[] nextBranch, int[] branchCount, double upperBound, List<Solution<?>> unexplored){
+		Solution<?> minCostSolution = null;
+		while(true){
+			for(int branch = nextBranch[depth]; branch < branchCount[depth]; branch++){
+				double lowerBound = state.descend(branch);
+				if(state.isComplete()){
+					if(lowerBound <= upperBound){
+						upperBound = lowerBound;
+						state.setUpperBound(upperBound);
+						setSharedValue(lowerBound);
+						minCostSolution = state.toSolution();
+					}
+				}
+				else if(lowerBound < upperBound){
+					unexplored.add(state.toSolution());
+				}
+				state.ascend();
+			}
+			if(depth == 0){
+				return minCostSolution;
+			}
+			state.ascend();
+			depth--;
+		}
+	}
+	
+	/**
+	 * Gets the time at which the budget of the task runs out.
+	 *
+	 * @return the deadline as given by System.nanoTime(), or 0 if the task does not have a time budget
+	 */
+	private long getDeadline(){
+		return timeBudget > 0 ? System.nanoTime() + timeBudget : 0;
+	}
+	
+	/**
+	 * Checks if the budget of the task has run out. The clock is read only periodically.
+	 *
+	 * @param nodes the number of nodes searched so far, including the current one
+	 * @param deadline the time at which the budget runs out, or 0 if there is none
+	 * @return true, if the search must stop
+	 */
+	private boolean isOverBudget(long nodes, long deadline){
+		if(nodeBudget > 0 && nodes > nodeBudget){
+			return true;
+		}
+		return deadline != 0 && (nodes & (BUDGET_CHECK_INTERVAL - 1)) == 0 && System.nanoTime() - deadline >= 0;
+	}
+	
+	/**
+	 * Creates the tasks for the nodes that were left unexplored when the budget ran out.
+	 *
+	 * @param unexplored the unexplored nodes
+	 */
+	private void createUnfinishedTasks(List<Solution<?>> unexplored){
+		List<Task<Solution<?>>> tasks = new ArrayList<Task<Solution<?>>>();
+		double upperBound = getSharedValue();
+		for(Solution<?> node : unexplored){
+			if((Double) node.getLowerBound() < upperBound){
+				tasks.add(createChildTask(node, tasks.size()));
+			}
+		}
+		this.unfinishedTasks = tasks.isEmpty() ? null : tasks;
+	}
+	
+	/**
+	 * Creates a child task for the given node, which inherits the search settings of this task.
+	 *
+	 * @param child the node
+	 * @param argNo the argument number of the child for the successor task
+	 * @return the task
+	 */
+	private BranchAndBound createChildTask(Solution child, int argNo){
+		BranchAndBound task = new BranchAndBound(child, this.level + 1);
+		task.setSearchMode(this.searchMode);
+		task.nodeBudget = this.nodeBudget;
+		task.timeBudget = this.timeBudget;
+		task.setArgNo(argNo);
+		return task;
+	}
+	
+	/**
+	 * Gets the shared value, from the incumbent of the computer if it keeps one.
 	 *
 	 * @return the shared value
 	 */
 	private double getSharedValue(){
+		Incumbent incumbent = getIncumbent();
+		if(incumbent != null){
+			return incumbent.get();
+		}
 		double sharedValue = 0;
 		try {
 			DoubleShared shared = (DoubleShared) this.getShared();
@@ -152,10 +553,15 @@ public final class BranchAndBound extends Task<Solution<?>>{
 	
 	/**
 	 * Sets the shared value.
+	 * If the computer keeps an incumbent, the value is propagated only if it improves the incumbent.
 	 *
 	 * @param d the new shared value
 	 */
 	private void setSharedValue(double d){
+		Incumbent incumbent = getIncumbent();
+		if(incumbent != null && !incumbent.offer(d)){
+			return;
+		}
 		Shared<Double> shared = new DoubleShared(d);
 		try {
 			this.setShared(shared);			
@@ -164,13 +570,37 @@ public final class BranchAndBound extends Task<Solution<?>>{
 		}
 	}
 	
-	/* (non-Javadoc)
+	/**
+	 * The task is atomic if the Space decided so; otherwise it is atomic at the base level.
 	 * @see api.Task#isAtomic()
 	 */
 	@Override
 	public boolean isAtomic() {
+		if(this.atomic != null){
+			return this.atomic;
+		}
 		return this.level == Constants.BB_BASE_LEVEL;
 	}
+	
+	/* (non-Javadoc)
+	 * @see api.Task#getSize()
+	 */
+	@Override
+	public int getSize() {
+		return this.size;
+	}
+	
+	/* (non-Javadoc)
+	 * A successor task only composes the solutions of its children, which frees their results and may complete the job, so it has no bound to wait behind.
+	 * @see api.Task#getLowerBound()
+	 */
+	@Override
+	public double getLowerBound() {
+		if(getTaskType() == Constants.SUCCESSOR_TASK || this.solution == null){
+			return super.getLowerBound();
+		}
+		return (Double) this.solution.getLowerBound();
+	}
 
 	/**
 	 * Splits the node (task) and constructs smaller Branch and Bound tasks that correspond to its children
@@ -188,9 +618,7 @@ public final class BranchAndBound extends Task<Solution<?>>{
 			while (!children.isEmpty()) {
 				Solution child = (Solution) children.remove();
 				// Construct new Branch and Bound tasks
-				Task<Solution<?>> task = new BranchAndBound(child, this.level + 1);
-				task.setArgNo(argNo++);
-				tasks.add(task);
+				tasks.add(createChildTask(child, argNo++));
 			}
 		}
 		catch(Exception e){
@@ -201,16 +629,98 @@ public final class BranchAndBound extends Task<Solution<?>>{
 	}
 	
 	
+	/**
+	 * Sets the strategy used to explore the sub-tree of an atomic task. The child tasks inherit it.
+	 *
+	 * @param searchMode one of {@link Constants#STACK_SEARCH}, {@link Constants#IN_PLACE_SEARCH}, {@link Constants#BEST_FIRST_SEARCH} or {@link Constants#FORK_JOIN_SEARCH}
+	 */
+	public void setSearchMode(int searchMode) {
+		this.searchMode = searchMode;
+	}
+	
+	/**
+	 * Limits the number of nodes that an atomic task searches. Once the limit is reached, the task sends the parts of its sub-tree that are left to the Space as new tasks, which can run on other computers. 
+	 * The limit does not apply to the fork/join search. The child tasks inherit it.
+	 *
+	 * @param nodeBudget the number of nodes, or 0 for no limit
+	 */
+	public void setNodeBudget(long nodeBudget) {
+		this.nodeBudget = nodeBudget;
+	}
+	
+	/**
+	 * Limits the time that an atomic task searches, in the same way as {@link #setNodeBudget(long)}.
+	 *
+	 * @param timeBudget the time in milliseconds, or 0 for no limit
+	 */
+	public void setTimeBudget(long timeBudget) {
+		this.timeBudget = timeBudget * 1000000;
+	}
+	
+	/**
+	 * Gets the tasks for the parts of the sub-tree that were left unexplored when the budget ran out.
+	 * The successor task created afterwards starts with the best solution that this task found.
+	 * @see api.Task#getUnfinishedTasks()
+	 */
+	@Override
+	public List<Task<Solution<?>>> getUnfinishedTasks() {
+		return unfinishedTasks;
+	}
+	
+	/**
+	 * Gets the strategy used to explore the sub-tree of an atomic task.
+	 *
+	 * @return the search mode
+	 */
+	public int getSearchMode() {
+		return searchMode;
+	}
+	
 	/* (non-Javadoc)
 	 * @see api.Task#createSuccessorTask()
 	 */
 	@Override
 	public Task<Solution<?>> createSuccessorTask() {
-		Task<Solution<?>> successorTask = new BranchAndBound(Constants.SUCCESSOR_TASK);
+		BranchAndBound successorTask = new BranchAndBound(Constants.SUCCESSOR_TASK);
+		if(unfinishedTasks != null){ // This task has been executed, and the solution is the best one it found
+			successorTask.solution = this.solution;
+		}
 		return successorTask;
 	}
 	
 	
+	/**
+	 * Writes the fields of the task in a compact binary form.
+	 *
+	 * @param out the output stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(solution);
+		// The size is -1 for a successor task
+		Varint.write(out, size + 1);
+		out.writeByte(searchMode);
+		Varint.write(out, nodeBudget);
+		Varint.write(out, timeBudget);
+	}
+
+	/**
+	 * Reads the fields of the task.
+	 *
+	 * @param in the input stream
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws ClassNotFoundException the class not found exception
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		solution = (Solution<?>) in.readObject();
+		size = Varint.readInt(in) - 1;
+		searchMode = in.readByte();
+		nodeBudget = Varint.readLong(in);
+		timeBudget = Varint.readLong(in);
+	}
+	
 	/* (non-Javadoc)
 	 * @see api.Task#toString()
 	 */
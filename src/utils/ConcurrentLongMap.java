@@ -0,0 +1,262 @@
+/*
+ * @author gautham
+ */
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A thread-safe hash map whose keys are primitive longs other than 0.
+ * The map is split into stripes that are locked independently, so threads that use different keys rarely wait for each other.
+ * Every stripe is an open-addressing table: the keys and the values are kept in two parallel arrays, so putting a value does not box its key or allocate an entry object.
+ *
+ * @param <V> the type of the values
+ */
+public class ConcurrentLongMap<V> {
+
+	/** The number of stripes; a power of two. */
+	private static final int STRIPE_COUNT = 16;
+
+	/** The stripes. */
+	private final Stripe[] stripes;
+
+	/**
+	 * Instantiates a new empty map.
+	 */
+	public ConcurrentLongMap(){
+		stripes = new Stripe[STRIPE_COUNT];
+		for(int i = 0; i < STRIPE_COUNT; i++){
+			stripes[i] = new Stripe();
+		}
+	}
+
+	/**
+	 * Gets the value of a key.
+	 *
+	 * @param key the key
+	 * @return the value, or null if the key is not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key){
+		long hash = hash(key);
+		return (V) getStripe(hash).get(key, hash);
+	}
+
+	/**
+	 * Puts a value in the map, replacing the value of the key if there is one.
+	 *
+	 * @param key the key; it must not be 0
+	 * @param value the value; it must not be null
+	 * @return the previous value of the key, or null if it was not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value){
+		long hash = hash(key);
+		return (V) getStripe(hash).put(key, hash, value);
+	}
+
+	/**
+	 * Removes a key from the map.
+	 *
+	 * @param key the key
+	 * @return the value of the key, or null if it was not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key){
+		long hash = hash(key);
+		return (V) getStripe(hash).remove(key, hash);
+	}
+
+	/**
+	 * Checks if the map is empty.
+	 *
+	 * @return true, if no stripe holds a key
+	 */
+	public boolean isEmpty(){
+		for(Stripe stripe : stripes){
+			if(stripe.size() > 0){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes all the keys from the map.
+	 *
+	 * @return the values that were removed
+	 */
+	@SuppressWarnings("unchecked")
+	public List<V> removeAll(){
+		List<V> values = new ArrayList<V>();
+		for(Stripe stripe : stripes){
+			stripe.removeAll((List<Object>) values);
+		}
+		return values;
+	}
+
+	/**
+	 * Spreads the bits of a key, since ids that are generated in sequence differ only in their low bits.
+	 *
+	 * @param key the key
+	 * @return the hash
+	 */
+	private static long hash(long key){
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 32);
+	}
+
+	/**
+	 * Gets the stripe of a hash, from its high bits; the stripe uses the low bits.
+	 *
+	 * @param hash the hash
+	 * @return the stripe
+	 */
+	private Stripe getStripe(long hash){
+		return stripes[(int) (hash >>> 60) & (STRIPE_COUNT - 1)];
+	}
+
+	/**
+	 * A part of the map, which is an open-addressing table with linear probing.
+	 */
+	private static class Stripe {
+
+		/** The initial capacity; a power of two. */
+		private static final int INITIAL_CAPACITY = 16;
+
+		/** The keys; 0 marks an empty slot. */
+		private long[] keys = new long[INITIAL_CAPACITY];
+
+		/** The values; values[i] belongs to keys[i]. */
+		private Object[] values = new Object[INITIAL_CAPACITY];
+
+		/** The number of keys in the stripe. */
+		private int size;
+
+		/**
+		 * Gets the value of a key.
+		 *
+		 * @param key the key
+		 * @param hash the hash of the key
+		 * @return the value, or null
+		 */
+		synchronized Object get(long key, long hash){
+			int index = find(key, hash);
+			return keys[index] == key ? values[index] : null;
+		}
+
+		/**
+		 * Puts a value in the stripe.
+		 *
+		 * @param key the key
+		 * @param hash the hash of the key
+		 * @param value the value
+		 * @return the previous value, or null
+		 */
+		synchronized Object put(long key, long hash, Object value){
+			int index = find(key, hash);
+			if(keys[index] == key){
+				Object previous = values[index];
+				values[index] = value;
+				return previous;
+			}
+			keys[index] = key;
+			values[index] = value;
+			// The table is kept at most half full, so that the probe sequences stay short
+			if(++size * 2 > keys.length){
+				grow();
+			}
+			return null;
+		}
+
+		/**
+		 * Removes a key from the stripe.
+		 *
+		 * @param key the key
+		 * @param hash the hash of the key
+		 * @return the value, or null
+		 */
+		synchronized Object remove(long key, long hash){
+			int index = find(key, hash);
+			if(keys[index] != key){
+				return null;
+			}
+			Object value = values[index];
+			size--;
+			// Shift back the keys that follow in the probe sequence, so that no empty slot interrupts it
+			int mask = keys.length - 1;
+			int empty = index;
+			for(int next = (empty + 1) & mask; keys[next] != 0; next = (next + 1) & mask){
+				int home = (int) hash(keys[next]) & mask;
+				// The key may only move back if its home slot is not between the empty slot and its current slot
+				if(((next - home) & mask) >= ((next - empty) & mask)){
+					keys[empty] = keys[next];
+					values[empty] = values[next];
+					empty = next;
+				}
+			}
+			keys[empty] = 0;
+			values[empty] = null;
+			return value;
+		}
+
+		/**
+		 * Gets the number of keys in the stripe.
+		 *
+		 * @return the size
+		 */
+		synchronized int size(){
+			return size;
+		}
+
+		/**
+		 * Removes all the keys from the stripe.
+		 *
+		 * @param removed the list that the values are added to
+		 */
+		synchronized void removeAll(List<Object> removed){
+			for(int i = 0; i < keys.length; i++){
+				if(keys[i] != 0){
+					removed.add(values[i]);
+				}
+			}
+			keys = new long[INITIAL_CAPACITY];
+			values = new Object[INITIAL_CAPACITY];
+			size = 0;
+		}
+
+		/**
+		 * Finds the slot of a key, or the empty slot where it would be put.
+		 *
+		 * @param key the key
+		 * @param hash the hash of the key
+		 * @return the index of the slot
+		 */
+		private int find(long key, long hash){
+			int mask = keys.length - 1;
+			int index = (int) hash & mask;
+			while(keys[index] != 0 && keys[index] != key){
+				index = (index + 1) & mask;
+			}
+			return index;
+		}
+
+		/**
+		 * Doubles the capacity of the table.
+		 */
+		private void grow(){
+			long[] oldKeys = keys;
+			Object[] oldValues = values;
+			keys = new long[oldKeys.length * 2];
+			values = new Object[oldValues.length * 2];
+			for(int i = 0; i < oldKeys.length; i++){
+				if(oldKeys[i] != 0){
+					int index = find(oldKeys[i], hash(oldKeys[i]));
+					keys[index] = oldKeys[i];
+					values[index] = oldValues[i];
+				}
+			}
+		}
+	}
+}
@@ -14,9 +14,111 @@ public class Constants {
 	/** The Constant SUCCESSOR_TASK. */
 	public static final int SUCCESSOR_TASK = 1;
 	
-	/** The Constant representing the base condition for a Branch and Bound task */
+	/** The id that no task has; it stands for the successor of the task that produces the final result. */
+	public static final long NO_TASK_ID = 0;
+	
+	/** The id that no job has; it stands for a problem that has not been put in the Space, and is sent along with the tasks that refer to it. */
+	public static final long NO_JOB_ID = 0;
+	
+	/** The number of jobs whose problems a JVM keeps. */
+	public static final int PROBLEM_CACHE_SIZE = 4;
+	
+	/** The Constant representing the base condition for a Branch and Bound task; the Space uses it only until it has measured how long the tasks run. */
 	public static final int BB_BASE_LEVEL = 2;
 	
+	/** The default duration, in milliseconds, that the Space aims for when it decides whether a task is split or executed as a whole. */
+	public static final long TARGET_TASK_RUN_TIME = 100;
+	
+	/** The size of a task at or below which it is always executed as a whole, since splitting it costs more than it saves. */
+	public static final int MIN_SPLIT_SIZE = 3;
+	
+	/** The factor by which the run time of a task is assumed to grow with every unit of size, until it has been measured. */
+	public static final double TASK_RUN_TIME_GROWTH = 3;
+	
+	/** The Constant representing the depth-first search of a sub-tree that creates a Solution object for every node. */
+	public static final int STACK_SEARCH = 0;
+	
+	/** The Constant representing the depth-first search of a sub-tree that modifies a single search state in place. */
+	public static final int IN_PLACE_SEARCH = 1;
+	
+	/** The Constant representing the best-first search of a sub-tree, which always expands the node that has the smallest lower bound. */
+	public static final int BEST_FIRST_SEARCH = 2;
+	
+	/** The Constant representing the depth-first search of a sub-tree as fork/join tasks, so that the idle workers of the computer can steal parts of the sub-tree. */
+	public static final int FORK_JOIN_SEARCH = 3;
+	
+	/** The depth below the root of an atomic task beyond which a fork/join search no longer splits the sub-tree. */
+	public static final int FORK_JOIN_SPLIT_DEPTH = 8;
+	
+	/** The number of forked tasks that a worker may have queued beyond what the other workers are likely to steal, above which a fork/join search explores the sub-tree sequentially. */
+	public static final int FORK_JOIN_SURPLUS_LIMIT = 2;
+	
+	/** The number of tasks per worker that wait in the local queue of a computer, beyond those that are running, so that the workers never wait for the Space. */
+	public static final int PREFETCH_PER_WORKER = 1;
+	
+	/** The number of buffered results and split tasks at which a computer sends them to the Space. */
+	public static final int FLUSH_BATCH_SIZE = 32;
+	
+	/** The longest time, in milliseconds, that a computer keeps results and split tasks buffered. */
+	public static final long FLUSH_INTERVAL = 10;
+	
+	/** The number of child tasks per worker that a computer keeps to execute itself; the children of further splits are sent to the Space. */
+	public static final int LOCAL_TASKS_PER_WORKER = 4;
+	
+	/** The time, in milliseconds, that a dispatcher waits for a ready task before it asks the computers that keep child tasks to give some of them back. */
+	public static final long WORK_REQUEST_DELAY = 20;
+	
+	/** The number of computers that the Space sends a newer shared object to in parallel. */
+	public static final int BROADCAST_THREADS = 8;
+	
+	/** The port that the Space accepts the computers' NIO connections on. */
+	public static final int NIO_PORT = 1100;
+	
+	/** The capacity, in bytes, of the direct buffers that NIO frames are written from and read into. */
+	public static final int NIO_BUFFER_SIZE = 64 * 1024;
+	
+	/** The largest number of free direct buffers that a node keeps for NIO frames. */
+	public static final int NIO_POOLED_BUFFERS = 64;
+	
+	/** The largest NIO frame, in bytes, that a node accepts; a connection that announces a larger one is closed. */
+	public static final int NIO_MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+	/** The time, in milliseconds, after which a NIO call pings the other side, and after which the connection is closed if the ping is not answered either. */
+	public static final long NIO_CALL_TIMEOUT = 10000;
+	
+	/** The Constant representing the ready queue that takes the newest ready task first, so that the cluster searches depth-first. */
+	public static final int LIFO_READY_QUEUE = 0;
+	
+	/** The Constant representing the ready queue that takes the oldest ready task first, so that the cluster searches breadth-first. */
+	public static final int FIFO_READY_QUEUE = 1;
+	
+	/** The Constant representing the ready queue that takes the ready task with the smallest lower bound first, so that the cluster searches best-first. */
+	public static final int BEST_FIRST_READY_QUEUE = 2;
+	
+	/** The order in which the Space hands out the ready tasks, unless another one is chosen at startup. */
+	public static final int READY_QUEUE_POLICY = LIFO_READY_QUEUE;
+	
+	/** The largest number of tasks that the Space sends to a computer in one call. */
+	public static final int MAX_BATCH_SIZE = 64;
+	
+	/** The number of times longer than the cost of a remote call that the tasks of a batch should run for. */
+	public static final int BATCH_LATENCY_RATIO = 10;
+	
+	/** The number of nodes on the frontier of a best-first search beyond which the nodes are explored depth-first. */
+	public static final int BEST_FIRST_FRONTIER_LIMIT = 100000;
+	
+	/** The Constant representing the lower bound made up of the path from root and the edge that closes the tour. */
+	public static final int PATH_BOUND = 0;
+	
+	/** The Constant representing the lower bound made up of the path from root, a minimum spanning tree over the remaining nodes and the edges that connect the two. */
+	public static final int SPANNING_TREE_BOUND = 1;
+	
+	/** The Constant representing the spanning tree bound with Held-Karp penalties on the remaining nodes, tuned by subgradient optimization. */
+	public static final int HELD_KARP_BOUND = 2;
+	
+	/** The number of nearest neighbours kept in the candidate list of every city. */
+	public static final int CANDIDATE_LIST_SIZE = 10;
+	
 	
 	
 }
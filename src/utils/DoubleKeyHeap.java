@@ -0,0 +1,122 @@
+/*
+ * @author gautham
+ */
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap whose keys are primitive doubles.
+ * The keys and the elements are kept in two parallel arrays, so adding an element does not box its key or allocate an entry object.
+ *
+ * @param <E> the type of the elements
+ */
+public class DoubleKeyHeap<E> {
+
+	/** The initial capacity of the heap. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The keys, arranged as a binary heap. */
+	private double[] keys;
+
+	/** The elements; elements[i] belongs to keys[i]. */
+	private Object[] elements;
+
+	/** The number of elements in the heap. */
+	private int size;
+
+	/**
+	 * Instantiates a new empty heap.
+	 */
+	public DoubleKeyHeap(){
+		keys = new double[INITIAL_CAPACITY];
+		elements = new Object[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Adds an element to the heap.
+	 *
+	 * @param key the key
+	 * @param element the element
+	 */
+	public void add(double key, E element){
+		if(size == keys.length){
+			keys = Arrays.copyOf(keys, size * 2);
+			elements = Arrays.copyOf(elements, size * 2);
+		}
+		// Sift up from the new leaf
+		int index = size++;
+		while(index > 0){
+			int parent = (index - 1) >>> 1;
+			if(keys[parent] <= key){
+				break;
+			}
+			keys[index] = keys[parent];
+			elements[index] = elements[parent];
+			index = parent;
+		}
+		keys[index] = key;
+		elements[index] = element;
+	}
+
+	/**
+	 * Gets the smallest key in the heap.
+	 *
+	 * @return the smallest key
+	 */
+	public double peekKey(){
+		return keys[0];
+	}
+
+	/**
+	 * Removes the element that has the smallest key.
+	 *
+	 * @return the element
+	 */
+	@SuppressWarnings("unchecked")
+	public E remove(){
+		E top = (E) elements[0];
+		int last = --size;
+		double key = keys[last];
+		Object element = elements[last];
+		elements[last] = null;
+		// Sift the last element down from the root
+		int index = 0;
+		int half = last >>> 1;
+		while(index < half){
+			int child = 2 * index + 1;
+			if(child + 1 < last && keys[child + 1] < keys[child]){
+				child++;
+			}
+			if(key <= keys[child]){
+				break;
+			}
+			keys[index] = keys[child];
+			elements[index] = elements[child];
+			index = child;
+		}
+		if(last > 0){
+			keys[index] = key;
+			elements[index] = element;
+		}
+		return top;
+	}
+
+	/**
+	 * Gets the number of elements in the heap.
+	 *
+	 * @return the size
+	 */
+	public int size(){
+		return size;
+	}
+
+	/**
+	 * Checks if the heap is empty.
+	 *
+	 * @return true, if it is empty
+	 */
+	public boolean isEmpty(){
+		return size == 0;
+	}
+}
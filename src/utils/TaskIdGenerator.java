@@ -0,0 +1,53 @@
+/*
+ * @author gautham
+ */
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the task ids of this JVM.
+ * An id is a long whose high {@link #NODE_BITS} bits hold the id of the node that created the task, and whose low bits hold a counter of that node.
+ * The Space hands out the node ids, to the computers as their computer ids and to every client before it creates the tasks of a job, so the ids are unique across the nodes of a Space without any coordination per task.
+ * A JVM that is given another node id, such as one that runs both a client and a computer, keeps its counter, so its ids stay unique.
+ * The counter starts from 1, so no id is {@link Constants#NO_TASK_ID}.
+ */
+public class TaskIdGenerator {
+
+	/** The number of bits that hold the node id. */
+	private static final int NODE_BITS = 24;
+
+	/** The number of bits that hold the counter. */
+	private static final int COUNTER_BITS = 64 - NODE_BITS;
+
+	/** The node id, shifted in place. */
+	private static volatile long node;
+
+	/** The counter. */
+	private static final AtomicLong counter = new AtomicLong();
+
+	/**
+	 * Instantiates a new task id generator.
+	 */
+	private TaskIdGenerator(){
+
+	}
+
+	/**
+	 * Sets the id of this node, once the Space has handed it out.
+	 *
+	 * @param nodeId the node id
+	 */
+	public static void setNodeId(int nodeId){
+		node = (long) nodeId << COUNTER_BITS;
+	}
+
+	/**
+	 * Generates a new task id.
+	 *
+	 * @return the task id
+	 */
+	public static long nextId(){
+		return node | (counter.incrementAndGet() & ((1L << COUNTER_BITS) - 1));
+	}
+}
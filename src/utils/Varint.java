@@ -0,0 +1,106 @@
+/*
+ * @author gautham
+ */
+package utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads integers in a variable number of bytes: seven bits per byte, least significant first, with the high bit set on every byte but the last.
+ * Small values, such as city indices, levels and counts, therefore take a single byte.
+ * The values must not be negative; a value that may be -1 is written plus one.
+ */
+public class Varint {
+
+	/**
+	 * Instantiates a new varint.
+	 */
+	private Varint(){
+
+	}
+
+	/**
+	 * Writes a value.
+	 *
+	 * @param out the output
+	 * @param value the value; it must not be negative
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void write(DataOutput out, long value) throws IOException {
+		while((value & ~0x7FL) != 0){
+			out.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	/**
+	 * Reads a value.
+	 *
+	 * @param in the input
+	 * @return the value
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static long readLong(DataInput in) throws IOException {
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7){
+			int b = in.readByte();
+			value |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0){
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	/**
+	 * Reads a value that was written from an int.
+	 *
+	 * @param in the input
+	 * @return the value
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static int readInt(DataInput in) throws IOException {
+		return (int) readLong(in);
+	}
+
+	/**
+	 * Writes an array of values.
+	 *
+	 * @param out the output
+	 * @param values the values, which must not be negative, or null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void writeArray(DataOutput out, int[] values) throws IOException {
+		if(values == null){
+			write(out, 0);
+			return;
+		}
+		// The length is written plus one, so that 0 stands for null
+		write(out, values.length + 1);
+		for(int value : values){
+			write(out, value);
+		}
+	}
+
+	/**
+	 * Reads an array of values.
+	 *
+	 * @param in the input
+	 * @return the values, or null
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static int[] readArray(DataInput in) throws IOException {
+		int length = readInt(in) - 1;
+		if(length < 0){
+			return null;
+		}
+		int[] values = new int[length];
+		for(int i = 0; i < length; i++){
+			values[i] = readInt(in);
+		}
+		return values;
+	}
+}